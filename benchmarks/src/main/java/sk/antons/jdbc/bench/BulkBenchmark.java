@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sk.antons.jdbc.util.Bulk;
+
+/**
+ * Insert of 10000 rows to embedded H2 database one by one, by Bulk 
+ * jdbc batches and by Bulk multi row inserts. All variants commit 
+ * once at the end.
+ * @author antons
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkBenchmark {
+
+    private static final String INSERT = "insert into person (id, name, age) values (?, ?, ?)";
+    private static final int ROWS = 10000;
+
+    private final List<Object[]> rows = new ArrayList<>();
+    private Connection conn;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        for(int i = 0; i < ROWS; i++) rows.add(new Object[]{i, "name" + i, i % 100});
+        conn = DriverManager.getConnection("jdbc:h2:mem:bulk", "sa", "");
+        conn.setAutoCommit(false);
+        try(Statement st = conn.createStatement()) {
+            st.executeUpdate("create table person (id int primary key, name varchar(20), age int)");
+        }
+        conn.commit();
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        try(Statement st = conn.createStatement()) {
+            st.executeUpdate("truncate table person");
+        }
+        conn.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public long perRow() throws SQLException {
+        long updated = 0;
+        try(PreparedStatement ps = conn.prepareStatement(INSERT)) {
+            for(Object[] row : rows) {
+                for(int i = 0; i < row.length; i++) ps.setObject(i + 1, row[i]);
+                updated += ps.executeUpdate();
+            }
+        }
+        conn.commit();
+        return updated;
+    }
+
+    @Benchmark
+    public long batch() throws SQLException {
+        long updated = Bulk.instance(INSERT)
+            .batchSize(1000)
+            .execute(conn, rows)
+            .updated();
+        conn.commit();
+        return updated;
+    }
+
+    @Benchmark
+    public long multiRowValues() throws SQLException {
+        long updated = Bulk.instance(INSERT)
+            .batchSize(1000)
+            .multiRowValues(50)
+            .execute(conn, rows)
+            .updated();
+        conn.commit();
+        return updated;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import sk.antons.jdbc.log.invocation.Identities;
+
+/**
+ * Identity allocation under contention of 64 threads. Identities 
+ * uses lock free AtomicLong, synchronized is previous implementation 
+ * (static synchronized method with int counter).
+ * @author antons
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class IdentitiesBenchmark {
+
+    private static int counter = 0;
+
+    private static synchronized int nextSynchronized() {
+        return ++counter;
+    }
+
+    @Benchmark
+    public long atomic() {
+        return Identities.nextStatement();
+    }
+
+    @Benchmark
+    public int synchronizedCounter() {
+        return nextSynchronized();
+    }
+}
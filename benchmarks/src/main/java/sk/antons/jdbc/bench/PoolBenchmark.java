@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import sk.antons.jdbc.ds.DriverManagerDataSource;
+import sk.antons.jdbc.ds.PoolDataSource;
+
+/**
+ * Borrow, one query and return of connection from PoolDataSource 
+ * (max 8 connections) and DriverManagerDataSource (new physical 
+ * connection for each borrow) over embedded H2 database.
+ * @author antons
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoolBenchmark {
+
+    @Param({"pool", "driverManager"})
+    public String mode;
+
+    private Connection keep;
+    private DataSource ds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        DriverManagerDataSource driverManager = DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:pool", "sa", "");
+        keep = driverManager.getConnection();
+        ds = "pool".equals(mode) ? PoolDataSource.instance(driverManager).maxSize(8) : driverManager;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if(ds instanceof PoolDataSource) ((PoolDataSource)ds).close();
+        keep.close();
+    }
+
+    @Benchmark
+    public int borrow() throws SQLException {
+        return query();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int borrowBy8Threads() throws SQLException {
+        return query();
+    }
+
+    private int query() throws SQLException {
+        try(Connection conn = ds.getConnection();
+            PreparedStatement ps = conn.prepareStatement("select 1");
+            ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sk.antons.jdbc.util.ResultMapper;
+import sk.antons.jdbc.util.RowMapper;
+
+/**
+ * Mapping of 1000 rows to beans by ResultMapper and by hand written 
+ * code reading columns by label and by index.
+ * @author antons
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultMapperBenchmark {
+
+    public static class Person {
+        private int id;
+        private String firstName;
+        private int age;
+        private double weight;
+        private boolean active;
+
+        public void setId(int id) { this.id = id; }
+        public void setFirstName(String firstName) { this.firstName = firstName; }
+        public void setAge(int age) { this.age = age; }
+        public void setWeight(double weight) { this.weight = weight; }
+        public void setActive(boolean active) { this.active = active; }
+    }
+
+    private final ResultMapper<Person> mapper = ResultMapper.of(Person.class);
+    private Connection conn;
+    private PreparedStatement ps;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:resultmapper", "sa", "");
+        try(Statement st = conn.createStatement()) {
+            st.executeUpdate("create table person (id int, first_name varchar(20), age int, weight double, active boolean)");
+            st.executeUpdate("insert into person select x, 'name' || x, mod(x, 100), x * 0.5, mod(x, 2) = 0 from system_range(1, 1000)");
+        }
+        ps = conn.prepareStatement("select id, first_name, age, weight, active from person");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        ps.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public List<Person> resultMapper() throws SQLException {
+        List<Person> list = new ArrayList<>();
+        try(ResultSet rs = ps.executeQuery()) {
+            RowMapper<Person> rows = mapper.rowMapper(rs);
+            while(rs.next()) list.add(rows.map(rs));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<Person> handWrittenByLabel() throws SQLException {
+        List<Person> list = new ArrayList<>();
+        try(ResultSet rs = ps.executeQuery()) {
+            while(rs.next()) {
+                Person person = new Person();
+                person.setId(rs.getInt("id"));
+                person.setFirstName(rs.getString("first_name"));
+                person.setAge(rs.getInt("age"));
+                person.setWeight(rs.getDouble("weight"));
+                person.setActive(rs.getBoolean("active"));
+                list.add(person);
+            }
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<Person> handWrittenByIndex() throws SQLException {
+        List<Person> list = new ArrayList<>();
+        try(ResultSet rs = ps.executeQuery()) {
+            while(rs.next()) {
+                Person person = new Person();
+                person.setId(rs.getInt(1));
+                person.setFirstName(rs.getString(2));
+                person.setAge(rs.getInt(3));
+                person.setWeight(rs.getDouble(4));
+                person.setActive(rs.getBoolean(5));
+                list.add(person);
+            }
+        }
+        return list;
+    }
+}
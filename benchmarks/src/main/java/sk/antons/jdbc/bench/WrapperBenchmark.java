@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sk.antons.jdbc.log.JdbcWrapper;
+import sk.antons.jdbc.log.LogConfig;
+
+/**
+ * Overhead of logging ResultSet wrapper next to raw H2 driver. 
+ * Mode raw uses driver result set, wrapper uses generated delegating 
+ * LogResultSet and proxy calls the same LogResultSet reflectively 
+ * through java.lang.reflect.Proxy (cost of previous proxy based 
+ * implementation). Logging is on, messages are discarded.
+ * @author antons
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WrapperBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"raw", "wrapper", "proxy"})
+    public String mode;
+
+    private final LogConfig config = LogConfig.instance(() -> true, message -> {});
+    private Connection conn;
+    private PreparedStatement ps;
+    private ResultSet positioned;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:wrapper", "sa", "");
+        try(Statement st = conn.createStatement()) {
+            st.executeUpdate("create table item (id int, name varchar(20), amount double)");
+            st.executeUpdate("insert into item select x, 'item' || x, x * 1.5 from system_range(1, " + ROWS + ")");
+        }
+        ps = conn.prepareStatement("select id, name, amount from item");
+        positioned = wrap(ps.executeQuery());
+        positioned.next();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        positioned.close();
+        ps.close();
+        conn.close();
+    }
+
+    private ResultSet wrap(ResultSet rs) {
+        if("wrapper".equals(mode)) return JdbcWrapper.wrap(rs, config, 1, 1);
+        if("proxy".equals(mode)) {
+            ResultSet logged = JdbcWrapper.wrap(rs, config, 1, 1);
+            return (ResultSet)Proxy.newProxyInstance(ResultSet.class.getClassLoader()
+                , new Class<?>[]{ResultSet.class}
+                , (proxy, method, args) -> {
+                    try {
+                        return method.invoke(logged, args);
+                    } catch(InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        }
+        return rs;
+    }
+
+    /**
+     * Single getter call on positioned row.
+     */
+    @Benchmark
+    public int getInt() throws SQLException {
+        return positioned.getInt(1);
+    }
+
+    /**
+     * Single getter call by label on positioned row.
+     */
+    @Benchmark
+    public double getDoubleByLabel() throws SQLException {
+        return positioned.getDouble("amount");
+    }
+
+    /**
+     * Query reading all columns of all rows.
+     */
+    @Benchmark
+    public long readAll() throws SQLException {
+        long sum = 0;
+        try(ResultSet rs = wrap(ps.executeQuery())) {
+            while(rs.next()) {
+                sum += rs.getInt(1) + rs.getString(2).length() + (long)rs.getDouble(3);
+            }
+        }
+        return sum;
+    }
+}
@@ -17,22 +17,37 @@ package sk.antons.jdbc.ds;
 
 import java.io.PrintWriter;
 import java.sql.Connection;
+import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 import javax.sql.DataSource;
 
 /**
- * Simple DataSource implementation. It uses DriverManager 
- * to create new connections. It makes no pooling just create 
- * new connection every time when getConnection is called.
+ * Simple DataSource implementation. It uses jdbc Driver (resolved 
+ * once by DriverManager) to create new connections. It makes no pooling 
+ * just create new connection every time when getConnection is called. 
+ * (Except connections opened in advance by warmUp(). Such connections 
+ * are validated before they are returned and connections older than 
+ * warmUpMaxAge are closed. close() closes not used ones.)
  * 
  * Only getConnection methods are implemented. Rest contains only 
  * dummy implementation.
  * @author antons
  */
-public class DriverManagerDataSource implements DataSource {
+public class DriverManagerDataSource implements DataSource, AutoCloseable {
     
     private String driverClassName;
     private String url;
@@ -67,30 +82,153 @@ public class DriverManagerDataSource implements DataSource {
         return ds;
     }
 
-    private static boolean driverRegistered = false;
-    private static void registerDriver(String clazz) throws SQLException {
-        if(driverRegistered) return;
+    private volatile Driver driver;
+    private final Queue<Warm> warm = new ConcurrentLinkedQueue<>();
+    private volatile long warmUpMaxAge = TimeUnit.SECONDS.toNanos(60);
+    private volatile int validationTimeout = 5;
+
+    /**
+     * Connections opened by warmUp() older than given time are closed 
+     * instead of being returned by getConnection(). (default 60s)
+     * @param millis max age in milliseconds
+     * @return this
+     */
+    public DriverManagerDataSource warmUpMaxAge(long millis) {
+        this.warmUpMaxAge = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        return this;
+    }
+
+    /**
+     * Timeout for Connection.isValid() call used for validation of 
+     * connections opened by warmUp(). (default 5s)
+     * @param seconds timeout in seconds
+     * @return this
+     */
+    public DriverManagerDataSource validationTimeout(int seconds) {
+        this.validationTimeout = Math.max(0, seconds);
+        return this;
+    }
+
+    /**
+     * Resolves driver for url. Driver class is loaded and driver is 
+     * found only once, connections are created directly by driver 
+     * without DriverManager synchronization.
+     * @return driver
+     * @throws SQLException if there is no driver for url
+     */
+    private Driver driver() throws SQLException {
+        Driver d = driver;
+        if(d != null) return d;
         try {
-            if(clazz != null) Class.forName(clazz);
+            if(driverClassName != null) Class.forName(driverClassName);
         } catch(Exception e) {
-            throw new SQLException("Unable to register driver " + clazz);
+            throw new SQLException("Unable to register driver " + driverClassName, e);
         }
+        d = DriverManager.getDriver(url);
+        driver = d;
+        return d;
     }
 
-    @Override
-    public Connection getConnection() throws SQLException {
-        registerDriver(driverClassName);
-        Connection conn = DriverManager.getConnection(url, user, password);
+    private Connection connect(String user, String password) throws SQLException {
+        Properties props = new Properties();
+        if(user != null) props.setProperty("user", user);
+        if(password != null) props.setProperty("password", password);
+        Connection conn = driver().connect(url, props);
+        if(conn == null) throw new SQLException("Driver " + driver.getClass().getName() + " does not accept url " + url);
         conn.setAutoCommit(false);
         return conn;
     }
 
+    /**
+     * Opens given number of connections in parallel and keeps them 
+     * for next getConnection() calls. So first requests after start 
+     * do not pay connection setup one by one.
+     * @param connections number of connections
+     * @return this
+     * @throws SQLException if connection can't be created
+     */
+    public DriverManagerDataSource warmUp(int connections) throws SQLException {
+        if(connections <= 0) return this;
+        driver();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(connections, 32), runnable -> {
+            Thread thread = new Thread(runnable, "jdbc-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicBoolean abandoned = new AtomicBoolean();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < connections; i++) {
+                futures.add(executor.submit(() -> {
+                    Connection conn = connect(user, password);
+                    if(abandoned.get()) closeQuietly(conn);
+                    else warm.add(new Warm(conn));
+                    return null;
+                }));
+            }
+            SQLException error = null;
+            for(Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch(ExecutionException e) {
+                    if(error == null) error = (e.getCause() instanceof SQLException) 
+                        ? (SQLException)e.getCause() 
+                        : new SQLException("Unable to warm up connection", e.getCause());
+                } catch(InterruptedException e) {
+                    // connections opened after this point are closed by tasks,
+                    // connections opened before are kept in warm queue
+                    abandoned.set(true);
+                    for(Future<?> f : futures) f.cancel(true);
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while warming up connections", e);
+                }
+            }
+            if(error != null) throw error;
+        } finally {
+            executor.shutdown();
+        }
+        return this;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Warm w;
+        while((w = warm.poll()) != null) {
+            if((System.nanoTime() - w.created <= warmUpMaxAge) && valid(w.conn)) return w.conn;
+            closeQuietly(w.conn);
+        }
+        return connect(user, password);
+    }
+
+    private boolean valid(Connection conn) {
+        try {
+            return conn.isValid(validationTimeout);
+        } catch(SQLException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch(SQLException | RuntimeException e) {
+            // connection is discarded anyway
+        }
+    }
+
+    /**
+     * Closes connections opened by warmUp() which were not used.
+     */
+    @Override
+    public void close() {
+        Warm w;
+        while((w = warm.poll()) != null) closeQuietly(w.conn);
+    }
+
     @Override
     public Connection getConnection(String username, String password) throws SQLException {
-        registerDriver(driverClassName);
-        Connection conn = DriverManager.getConnection(url, username, password);
-        conn.setAutoCommit(false);
-        return conn;
+        return connect(username, password);
     }
 
     @Override
@@ -125,6 +263,18 @@ public class DriverManagerDataSource implements DataSource {
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
         return false;
     }
+
+    /**
+     * Connection opened in advance.
+     */
+    private static class Warm {
+        private final Connection conn;
+        private final long created = System.nanoTime();
+
+        Warm(Connection conn) {
+            this.conn = conn;
+        }
+    }
     
 
 
@@ -21,8 +21,13 @@ import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.util.logging.Logger;
 import javax.sql.DataSource;
+import sk.antons.jdbc.log.CacheStats;
+import sk.antons.jdbc.log.FetchSizeAdvisor;
+import sk.antons.jdbc.log.JdbcMetrics;
+import sk.antons.jdbc.log.LeakDetector;
 import sk.antons.jdbc.log.LogConfig;
 import sk.antons.jdbc.log.JdbcWrapper;
+import sk.antons.jdbc.log.StatementStats;
 
 /**
  * Simple wrapper for DataSource instancies. It provides 
@@ -56,15 +61,57 @@ public class LogDataSource implements DataSource {
         return new LogDataSource(ds, config);
     }
 
+    /**
+     * Latency histograms of wrapped connections. 
+     * @return metrics or null if metrics are not enabled in LogConfig
+     */
+    public JdbcMetrics metrics() {
+        return config.metrics();
+    }
+
+    /**
+     * Aggregated statement statistics of wrapped connections. 
+     * @return statistics or null if statistics are not enabled in LogConfig
+     */
+    public StatementStats stats() {
+        return config.stats();
+    }
+
+    /**
+     * Typical row counts and advised fetch sizes of wrapped connections. 
+     * @return advisor or null if adaptive fetch size is not enabled in LogConfig
+     */
+    public FetchSizeAdvisor fetchSizeAdvisor() {
+        return config.fetchSizeAdvisor();
+    }
+
+    /**
+     * Open connection, statement and result set gauges and leak counter. 
+     * @return detector or null if leak detection is not enabled in LogConfig
+     */
+    public LeakDetector leakDetector() {
+        return config.leakDetector();
+    }
+
+    /**
+     * Hits and misses of prepared statement caches of wrapped connections. 
+     * @return stats or null if statement cache is not enabled in LogConfig
+     */
+    public CacheStats statementCacheStats() {
+        return config.statementCacheStats();
+    }
+
     @Override
     public Connection getConnection() throws SQLException {
         Connection conn = ds.getConnection();
+        if(!config.wrapConnection()) return conn;
         return JdbcWrapper.wrap(conn, config);
     }
 
     @Override
     public Connection getConnection(String username, String password) throws SQLException {
         Connection conn = ds.getConnection(username, password);
+        if(!config.wrapConnection()) return conn;
         return JdbcWrapper.wrap(conn, config);
     }
 
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.ds;
+
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import sk.antons.jdbc.wrap.CallableStatementWrapper;
+import sk.antons.jdbc.wrap.ConnectionWrapper;
+import sk.antons.jdbc.wrap.PreparedStatementWrapper;
+import sk.antons.jdbc.wrap.StatementWrapper;
+
+/**
+ * Logical connection borrowed from PoolDataSource. Close returns 
+ * physical connection to pool. If any statement was created in manual 
+ * commit mode connection is rolled back and changed auto commit, 
+ * read only, isolation and catalog are restored before connection 
+ * is returned.
+ * 
+ * Statements created through connection are tracked and those left 
+ * open are closed before connection is returned. Their getConnection() 
+ * returns this logical connection.
+ * @author antons
+ */
+class PoolConnection extends ConnectionWrapper {
+
+    private static final Connection CLOSED = (Connection)Proxy.newProxyInstance(
+        PoolConnection.class.getClassLoader()
+        , new Class<?>[]{Connection.class}
+        , (proxy, method, args) -> {
+            String name = method.getName();
+            if("isClosed".equals(name)) return true;
+            if("close".equals(name)) return null;
+            if("isValid".equals(name)) return false;
+            if("toString".equals(name)) return "closed pool connection";
+            throw new SQLException("Connection is closed");
+        });
+
+    private final PoolDataSource pool;
+    private final PoolDataSource.Entry entry;
+    private boolean dirty = false;
+    private boolean autoCommit;
+    private boolean resetAutoCommit = false;
+    private boolean resetReadOnly = false;
+    private boolean resetIsolation = false;
+    private boolean resetCatalog = false;
+    private final Set<StatementWrapper> statements = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    PoolConnection(PoolDataSource pool, PoolDataSource.Entry entry) {
+        super(entry.conn);
+        this.pool = pool;
+        this.entry = entry;
+        this.autoCommit = entry.autoCommit;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if(conn == CLOSED) return;
+        Connection physical = conn;
+        conn = CLOSED;
+        for(StatementWrapper stm : statements) {
+            try {
+                stm.wrapped().close();
+            } catch(SQLException | RuntimeException e) {
+                // next borrower must not see it anyway
+            }
+        }
+        statements.clear();
+        try {
+            if(dirty && !autoCommit) physical.rollback();
+            if(resetAutoCommit) physical.setAutoCommit(entry.autoCommit);
+            if(resetReadOnly) physical.setReadOnly(entry.readOnly);
+            if(resetIsolation) physical.setTransactionIsolation(entry.isolation);
+            if(resetCatalog) physical.setCatalog(entry.catalog);
+        } catch(SQLException | RuntimeException e) {
+            pool.remove(entry);
+            return;
+        }
+        pool.release(entry);
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return (conn == CLOSED) || conn.isClosed();
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        conn.setAutoCommit(autoCommit);
+        this.autoCommit = autoCommit;
+        resetAutoCommit = (autoCommit != entry.autoCommit);
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        conn.setReadOnly(readOnly);
+        resetReadOnly = true;
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        conn.setTransactionIsolation(level);
+        resetIsolation = true;
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        conn.setCatalog(catalog);
+        resetCatalog = true;
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        dirty = true;
+        return track(new PoolStatement(this, conn.createStatement()));
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        dirty = true;
+        return track(new PoolStatement(this, conn.createStatement(resultSetType, resultSetConcurrency)));
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        dirty = true;
+        return track(new PoolStatement(this, conn.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        dirty = true;
+        return track(new PoolPreparedStatement(this, conn.prepareStatement(sql)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        dirty = true;
+        return track(new PoolPreparedStatement(this, conn.prepareStatement(sql, resultSetType, resultSetConcurrency)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        dirty = true;
+        return track(new PoolPreparedStatement(this, conn.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        dirty = true;
+        return track(new PoolPreparedStatement(this, conn.prepareStatement(sql, autoGeneratedKeys)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        dirty = true;
+        return track(new PoolPreparedStatement(this, conn.prepareStatement(sql, columnIndexes)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        dirty = true;
+        return track(new PoolPreparedStatement(this, conn.prepareStatement(sql, columnNames)));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        dirty = true;
+        return track(new PoolCallableStatement(this, conn.prepareCall(sql)));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        dirty = true;
+        return track(new PoolCallableStatement(this, conn.prepareCall(sql, resultSetType, resultSetConcurrency)));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        dirty = true;
+        return track(new PoolCallableStatement(this, conn.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability)));
+    }
+
+    private <T extends StatementWrapper> T track(T stm) {
+        statements.add(stm);
+        return stm;
+    }
+
+    /**
+     * Statements created by borrower are closed when connection is 
+     * returned to pool and they return pooled connection.
+     */
+    private static class PoolStatement extends StatementWrapper {
+        private final PoolConnection connection;
+
+        PoolStatement(PoolConnection connection, Statement stm) {
+            super(stm);
+            this.connection = connection;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return connection;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                stm.close();
+            } finally {
+                connection.statements.remove(this);
+            }
+        }
+    }
+
+    private static class PoolPreparedStatement extends PreparedStatementWrapper {
+        private final PoolConnection connection;
+
+        PoolPreparedStatement(PoolConnection connection, PreparedStatement ps) {
+            super(ps);
+            this.connection = connection;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return connection;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                ps.close();
+            } finally {
+                connection.statements.remove(this);
+            }
+        }
+    }
+
+    private static class PoolCallableStatement extends CallableStatementWrapper {
+        private final PoolConnection connection;
+
+        PoolCallableStatement(PoolConnection connection, CallableStatement cs) {
+            super(cs);
+            this.connection = connection;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return connection;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                cs.close();
+            } finally {
+                connection.statements.remove(this);
+            }
+        }
+    }
+
+}
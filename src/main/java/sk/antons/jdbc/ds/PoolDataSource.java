@@ -0,0 +1,629 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.ds;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Connection pool. Physical connections are created by wrapped 
+ * DataSource (for example DriverManagerDataSource). 
+ * 
+ * Borrowing is lock free. Thread first tries connection it used last 
+ * time, then any idle connection, then creates new one if pool is not 
+ * full and finally waits (up to acquire timeout) for returned connection. 
+ * Waiting callers are queued in one FIFO queue and returned connection 
+ * is handed directly to the oldest one. No monitors are used, so virtual 
+ * threads waiting for connection don't pin carrier threads. 
+ * getConnectionAsync() waits without blocking any thread at all.
+ * Background thread closes connections idle longer than idle timeout 
+ * (above min size) or older than max lifetime and keeps min size.
+ * <pre>
+ *   PoolDataSource pool = PoolDataSource.instance(DriverManagerDataSource.instance(...))
+ *                              .minSize(2).maxSize(20).acquireTimeout(5000);
+ *   ...
+ *   pool.close();
+ * </pre>
+ * Only getConnection() is pooled. getConnection(username, password) 
+ * returns not pooled connection from wrapped DataSource.
+ * @author antons
+ */
+public class PoolDataSource implements DataSource, AutoCloseable {
+
+    private static final int IDLE = 0;
+    private static final int IN_USE = 1;
+    private static final int REMOVED = 2;
+    private static final long HOUSEKEEPING_MILLIS = 1000;
+
+    private final DataSource ds;
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Queue<CompletableFuture<Entry>> waiting = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Entry> affinity = new ThreadLocal<>();
+    private final ScheduledThreadPoolExecutor housekeeper;
+    private final ScheduledThreadPoolExecutor timeouts;
+
+    private volatile int minSize = 0;
+    private volatile int maxSize = 10;
+    private volatile long acquireTimeout = TimeUnit.SECONDS.toNanos(30);
+    private volatile long maxLifetime = TimeUnit.MINUTES.toNanos(30);
+    private volatile long idleTimeout = TimeUnit.MINUTES.toNanos(10);
+    private volatile boolean validateOnBorrow = false;
+    private volatile long validateAfterIdle = TimeUnit.SECONDS.toNanos(5);
+    private volatile int validationTimeout = 5;
+    private volatile int maxWaiting = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * New pool
+     * @param ds DataSource for physical connections
+     */
+    public PoolDataSource(DataSource ds) {
+        this.ds = ds;
+        this.housekeeper = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "jdbc-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeouts = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "jdbc-pool-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeouts.setRemoveOnCancelPolicy(true);
+        this.housekeeper.scheduleWithFixedDelay(this::housekeeping, 0, HOUSEKEEPING_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Factory method for new pools
+     * @param ds DataSource for physical connections
+     * @return new pool
+     */
+    public static PoolDataSource instance(DataSource ds) {
+        return new PoolDataSource(ds);
+    }
+
+    /**
+     * Number of connections kept in pool even if they are idle. (default 0)
+     * @param minSize
+     * @return this
+     */
+    public PoolDataSource minSize(int minSize) {
+        this.minSize = Math.max(0, minSize);
+        return this;
+    }
+
+    /**
+     * Max number of connections. (default 10)
+     * @param maxSize
+     * @return this
+     */
+    public PoolDataSource maxSize(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        return this;
+    }
+
+    /**
+     * Max time to wait for connection. (default 30s)
+     * @param millis timeout in milliseconds
+     * @return this
+     */
+    public PoolDataSource acquireTimeout(long millis) {
+        this.acquireTimeout = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        return this;
+    }
+
+    /**
+     * Connections older than given time are closed when they are 
+     * idle. (default 30min, 0 - unlimited)
+     * @param millis lifetime in milliseconds
+     * @return this
+     */
+    public PoolDataSource maxLifetime(long millis) {
+        this.maxLifetime = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        return this;
+    }
+
+    /**
+     * Connections idle longer than given time are closed if pool 
+     * has more than min size connections. (default 10min, 0 - never)
+     * @param millis idle time in milliseconds
+     * @return this
+     */
+    public PoolDataSource idleTimeout(long millis) {
+        this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        return this;
+    }
+
+    /**
+     * true if connection should be validated (Connection.isValid()) 
+     * each time it is borrowed. (default false)
+     * @param validate
+     * @return this
+     */
+    public PoolDataSource validateOnBorrow(boolean validate) {
+        this.validateOnBorrow = validate;
+        return this;
+    }
+
+    /**
+     * Connections idle longer than given time are validated before 
+     * they are borrowed. (default 5s, 0 - never)
+     * @param millis idle time in milliseconds
+     * @return this
+     */
+    public PoolDataSource validateAfterIdle(long millis) {
+        this.validateAfterIdle = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        return this;
+    }
+
+    /**
+     * Timeout for Connection.isValid() call. (default 5s)
+     * @param seconds timeout in seconds
+     * @return this
+     */
+    public PoolDataSource validationTimeout(int seconds) {
+        this.validationTimeout = Math.max(0, seconds);
+        return this;
+    }
+
+    /**
+     * Max number of callers waiting for connection. Next callers fail 
+     * immediately with SQLTransientConnectionException. (default 0 - unlimited)
+     * @param maxWaiting
+     * @return this
+     */
+    public PoolDataSource maxWaiting(int maxWaiting) {
+        this.maxWaiting = Math.max(0, maxWaiting);
+        return this;
+    }
+
+    /**
+     * Number of physical connections.
+     * @return count
+     */
+    public int size() { return size.get(); }
+    
+    /**
+     * Number of borrowed connections.
+     * @return count
+     */
+    public int active() {
+        int count = 0;
+        for(Entry entry : entries) if(entry.state.get() == IN_USE) count++;
+        return count;
+    }
+    
+    /**
+     * Number of idle connections.
+     * @return count
+     */
+    public int idle() {
+        int count = 0;
+        for(Entry entry : entries) if(entry.state.get() == IDLE) count++;
+        return count;
+    }
+
+    /**
+     * Number of callers waiting for connection.
+     * @return count
+     */
+    public int waiting() { return waiters.get(); }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long deadline = System.nanoTime() + acquireTimeout;
+        while(true) {
+            if(closed) throw new SQLException("Pool is closed");
+            Entry entry = borrow(deadline);
+            if(usable(entry)) return new PoolConnection(this, entry);
+            remove(entry);
+        }
+    }
+
+    /**
+     * Asynchronous variant of getConnection(). Returned future is completed 
+     * when connection is available (or acquire timeout elapses), no thread 
+     * is blocked while caller waits. Validation and connection creation 
+     * run in ForkJoinPool.commonPool().
+     * @return future connection
+     */
+    public CompletableFuture<Connection> getConnectionAsync() {
+        return getConnectionAsync(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Asynchronous variant of getConnection(). Returned future is completed 
+     * when connection is available (or acquire timeout elapses), no thread 
+     * is blocked while caller waits. If caller cancels (or completes) 
+     * returned future waiting stops and connection stays in pool.
+     * @param executor executor for validation and connection creation 
+     * @return future connection
+     */
+    public CompletableFuture<Connection> getConnectionAsync(Executor executor) {
+        CompletableFuture<Connection> result = new CompletableFuture<>();
+        borrowAsync(System.nanoTime() + acquireTimeout, executor, result);
+        return result;
+    }
+
+    private Entry borrow(long deadline) throws SQLException {
+        Entry entry = borrowIdle();
+        if(entry != null) return entry;
+        entry = create(IN_USE);
+        if(entry != null) return entry;
+        CompletableFuture<Entry> waiter = enqueue();
+        try {
+            waiter.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch(TimeoutException e) {
+            waiter.completeExceptionally(timeout());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if(!waiter.cancel(false) && !waiter.isCompletedExceptionally()) release(waiter.join());
+            throw new SQLException("Interrupted while waiting for connection", e);
+        } catch(ExecutionException e) {
+            // reported by join
+        }
+        try {
+            return waiter.join();
+        } catch(CompletionException e) {
+            throw sqlException(e.getCause());
+        }
+    }
+
+    /**
+     * Completes result with connection. If caller completes (cancels) 
+     * result before, waiting is cancelled and borrowed entry is returned.
+     */
+    private void borrowAsync(long deadline, Executor executor, CompletableFuture<Connection> result) {
+        if(result.isDone()) return;
+        if(closed) {
+            result.completeExceptionally(new SQLException("Pool is closed"));
+            return;
+        }
+        CompletableFuture<Entry> future;
+        Entry idle = borrowIdle();
+        if(idle != null) {
+            future = CompletableFuture.completedFuture(idle);
+        } else if(reserve()) {
+            // not cancelable, created entry must reach handler below
+            future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return open(IN_USE);
+                } catch(SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } else {
+            try {
+                future = enqueue();
+            } catch(SQLException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            if(!future.isDone()) {
+                CompletableFuture<Entry> waiter = future;
+                waiter.whenComplete(cancelOnCompletion(timeouts.schedule(
+                    () -> waiter.completeExceptionally(timeout())
+                    , Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)));
+                result.whenComplete((conn, error) -> waiter.cancel(false));
+            }
+        }
+        future.whenCompleteAsync((entry, error) -> {
+            if(error != null) {
+                result.completeExceptionally((error instanceof CompletionException) ? error.getCause() : error);
+            } else if(result.isDone()) {
+                release(entry);
+            } else if(!usable(entry)) {
+                remove(entry);
+                borrowAsync(deadline, executor, result);
+            } else if(!result.complete(new PoolConnection(this, entry))) {
+                release(entry);
+            }
+        }, executor);
+    }
+
+    private static BiConsumer<Object, Throwable> cancelOnCompletion(Future<?> future) {
+        return (value, error) -> future.cancel(false);
+    }
+
+    /**
+     * Idle connection. Thread first tries connection it used last time. 
+     * New callers don't overtake waiting ones.
+     */
+    private Entry borrowIdle() {
+        if(waiters.get() > 0) return null;
+        Entry entry = affinity.get();
+        if((entry != null) && entry.state.compareAndSet(IDLE, IN_USE)) return entry;
+        return scan();
+    }
+
+    /**
+     * Adds caller to the end of waiting queue. Returned connection is 
+     * handed directly to oldest waiter by release().
+     */
+    private CompletableFuture<Entry> enqueue() throws SQLException {
+        int max = maxWaiting;
+        if((max > 0) && (waiters.get() >= max)) {
+            throw new SQLTransientConnectionException("Too many callers waiting for connection (max: " + max + ")");
+        }
+        CompletableFuture<Entry> waiter = new CompletableFuture<>();
+        waiters.incrementAndGet();
+        waiter.whenComplete((entry, error) -> waiters.decrementAndGet());
+        waiting.add(waiter);
+        // connection may be released between scan and enqueue
+        Entry entry = scan();
+        if((entry != null) && !waiter.complete(entry)) release(entry);
+        if(closed) waiter.completeExceptionally(new SQLException("Pool is closed"));
+        return waiter;
+    }
+
+    private SQLException timeout() {
+        return new SQLTimeoutException("Connection is not available, timeout " 
+            + TimeUnit.NANOSECONDS.toMillis(acquireTimeout) + "ms (size: " 
+            + size.get() + ", active: " + active() + ", waiting: " + waiters.get() + ")");
+    }
+
+    private static SQLException sqlException(Throwable e) {
+        if(e instanceof SQLException) return (SQLException)e;
+        if(e instanceof RuntimeException) throw (RuntimeException)e;
+        return new SQLException(e);
+    }
+
+    private Entry scan() {
+        for(Entry entry : entries) {
+            if(entry.state.compareAndSet(IDLE, IN_USE)) return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Creates new physical connection if pool is not full.
+     * @param state initial state of entry
+     * @return new entry or null if pool is full
+     */
+    private Entry create(int state) throws SQLException {
+        if(!reserve()) return null;
+        return open(state);
+    }
+
+    /**
+     * Reserves place for new connection.
+     * @return false if pool is full
+     */
+    private boolean reserve() {
+        int current = size.get();
+        while(true) {
+            if(current >= maxSize) return false;
+            if(size.compareAndSet(current, current + 1)) return true;
+            current = size.get();
+        }
+    }
+
+    /**
+     * Creates physical connection in reserved place.
+     */
+    private Entry open(int state) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = ds.getConnection();
+            Entry entry = new Entry(conn, state);
+            entries.add(entry);
+            return entry;
+        } catch(SQLException | RuntimeException e) {
+            size.decrementAndGet();
+            if(conn != null) closeQuietly(conn);
+            if(!closed && (waiters.get() > 0)) housekeeper.execute(this::fill);
+            throw e;
+        }
+    }
+
+    private boolean usable(Entry entry) {
+        long now = System.nanoTime();
+        if(expired(entry, now)) return false;
+        boolean validate = validateOnBorrow 
+            || ((validateAfterIdle > 0) && (now - entry.lastUsed > validateAfterIdle));
+        if(!validate) return true;
+        try {
+            return entry.conn.isValid(validationTimeout);
+        } catch(SQLException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private boolean expired(Entry entry, long now) {
+        return (maxLifetime > 0) && (now - entry.created > maxLifetime);
+    }
+
+    /**
+     * Returns borrowed connection to pool.
+     * @param entry returned entry
+     */
+    void release(Entry entry) {
+        long now = System.nanoTime();
+        if(closed || expired(entry, now)) {
+            remove(entry);
+            return;
+        }
+        entry.lastUsed = now;
+        while(true) {
+            CompletableFuture<Entry> waiter;
+            while((waiter = waiting.poll()) != null) {
+                if(waiter.complete(entry)) return;
+            }
+            entry.state.set(IDLE);
+            affinity.set(entry);
+            // caller may enqueue after poll, but its scan may also miss 
+            // entry which is not idle yet
+            if(waiting.isEmpty() || !entry.state.compareAndSet(IDLE, IN_USE)) return;
+        }
+    }
+
+    /**
+     * Closes physical connection and removes it from pool.
+     * @param entry removed entry
+     */
+    void remove(Entry entry) {
+        if(entry.state.getAndSet(REMOVED) == REMOVED) return;
+        entries.remove(entry);
+        size.decrementAndGet();
+        closeQuietly(entry.conn);
+        if(!closed && (waiters.get() > 0)) housekeeper.execute(this::fill);
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch(SQLException | RuntimeException e) {
+            // connection is discarded anyway
+        }
+    }
+
+    private void housekeeping() {
+        long now = System.nanoTime();
+        for(Entry entry : entries) {
+            if(entry.state.get() != IDLE) continue;
+            boolean evict = expired(entry, now) 
+                || ((idleTimeout > 0) && (now - entry.lastUsed > idleTimeout) && (size.get() > minSize));
+            if(evict && entry.state.compareAndSet(IDLE, IN_USE)) remove(entry);
+        }
+        fill();
+    }
+
+    /**
+     * Creates idle connections up to min size (or for waiting threads).
+     */
+    private void fill() {
+        try {
+            while(!closed && (size.get() < minSize)) {
+                if(!add()) return;
+            }
+            if(!closed && (waiters.get() > 0)) add();
+        } catch(SQLException | RuntimeException e) {
+            // next housekeeping will try again
+        }
+    }
+
+    private boolean add() throws SQLException {
+        Entry entry = create(IN_USE);
+        if(entry == null) return false;
+        release(entry);
+        return true;
+    }
+
+    /**
+     * Closes pool. Idle connections are closed immediately, borrowed 
+     * connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        timeouts.shutdownNow();
+        CompletableFuture<Entry> waiter;
+        while((waiter = waiting.poll()) != null) {
+            waiter.completeExceptionally(new SQLException("Pool is closed"));
+        }
+        for(Entry entry : entries) {
+            if(entry.state.compareAndSet(IDLE, IN_USE)) remove(entry);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return ds.getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return ds.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        ds.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        ds.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return ds.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return ds.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if(iface.isInstance(ds)) return iface.cast(ds);
+        return ds.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(ds) || ds.isWrapperFor(iface);
+    }
+
+    /**
+     * Pooled physical connection.
+     */
+    static class Entry {
+        final Connection conn;
+        final AtomicInteger state;
+        final long created;
+        final boolean autoCommit;
+        final boolean readOnly;
+        final int isolation;
+        final String catalog;
+        volatile long lastUsed;
+
+        Entry(Connection conn, int state) throws SQLException {
+            this.conn = conn;
+            this.state = new AtomicInteger(state);
+            this.created = System.nanoTime();
+            this.lastUsed = created;
+            this.autoCommit = conn.getAutoCommit();
+            this.readOnly = conn.isReadOnly();
+            this.isolation = conn.getTransactionIsolation();
+            this.catalog = conn.getCatalog();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous log consumer. Messages are stored to bounded lock free 
+ * ring buffer and background thread delivers them in batches to 
+ * real consumer. So slow logging backend does not slow down jdbc calls.
+ * Structured events are formatted to text in background thread too.
+ * 
+ * When buffer is full overflow policy is applied
+ * <ul>
+ * <li>DROP - message is dropped (default)</li>
+ * <li>BLOCK - caller waits until there is free space in buffer</li>
+ * <li>SAMPLE - when buffer is more than half full only each n-th message 
+ * is accepted, message is dropped if buffer is full</li>
+ * </ul>
+ * <pre>
+ *   AsyncConsumer consumer = AsyncConsumer.instance((message) -> log.debug(message), 8192)
+ *                               .overflow(AsyncConsumer.Overflow.DROP);
+ * </pre>
+ * @author antons
+ */
+public class AsyncConsumer implements Consumer, EventConsumer, AutoCloseable {
+
+    public static enum Overflow { DROP, BLOCK, SAMPLE }
+
+    private final BatchConsumer consumer;
+    private final AtomicReferenceArray<Object> buffer;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampled = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final Thread drainer;
+
+    private volatile Overflow overflow = Overflow.DROP;
+    private volatile int batchSize = 256;
+    private volatile int sampleRate = 10;
+    private volatile boolean running = true;
+    private volatile boolean waiting = false;
+
+    /**
+     * New instance 
+     * @param consumer real consumer
+     * @param capacity buffer capacity (rounded up to power of two)
+     */
+    public AsyncConsumer(BatchConsumer consumer, int capacity) {
+        this.consumer = consumer;
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.drainer = new Thread(this::drainLoop, "jdbc-log-async");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Factory method for new instances. Consumer is called for each 
+     * message from background thread.
+     * @param consumer real consumer
+     * @param capacity buffer capacity
+     * @return new instance
+     */
+    public static AsyncConsumer instance(Consumer consumer, int capacity) {
+        return new AsyncConsumer(messages -> {
+            for(String message : messages) consumer.consume(message);
+        }, capacity);
+    }
+
+    /**
+     * Factory method for new instances. Consumer is called with 
+     * batches of messages from background thread.
+     * @param consumer real consumer
+     * @param capacity buffer capacity
+     * @return new instance
+     */
+    public static AsyncConsumer batched(BatchConsumer consumer, int capacity) {
+        return new AsyncConsumer(consumer, capacity);
+    }
+
+    /**
+     * Policy used when buffer is full. (default DROP)
+     * @param overflow
+     * @return this
+     */
+    public AsyncConsumer overflow(Overflow overflow) {
+        if(overflow != null) this.overflow = overflow;
+        return this;
+    }
+
+    /**
+     * Max number of messages delivered in one batch. (default 256)
+     * @param batchSize
+     * @return this
+     */
+    public AsyncConsumer batchSize(int batchSize) {
+        if(batchSize > 0) this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Only each n-th message is accepted by SAMPLE overflow policy 
+     * when buffer is more than half full. (default 10)
+     * @param sampleRate
+     * @return this
+     */
+    public AsyncConsumer sampleRate(int sampleRate) {
+        if(sampleRate > 0) this.sampleRate = sampleRate;
+        return this;
+    }
+
+    /**
+     * Number of messages dropped because buffer was full.
+     * @return count
+     */
+    public long dropped() { return dropped.get(); }
+    /**
+     * Number of messages skipped by SAMPLE overflow policy.
+     * @return count
+     */
+    public long sampled() { return sampled.get(); }
+    /**
+     * Number of messages delivered to real consumer.
+     * @return count
+     */
+    public long delivered() { return delivered.get(); }
+    /**
+     * Number of messages which real consumer failed to process.
+     * @return count
+     */
+    public long failed() { return failed.get(); }
+    /**
+     * Number of messages waiting in buffer.
+     * @return count
+     */
+    public int pending() { return (int)(head.get() - tail.get()); }
+
+    @Override
+    public void consume(String message) {
+        add(message);
+    }
+
+    @Override
+    public void consume(LogEvent event) {
+        add(event);
+    }
+
+    private void add(Object message) {
+        if(message == null) return;
+        if(!running) {
+            dropped.incrementAndGet();
+            return;
+        }
+        Overflow policy = overflow;
+        if(policy == Overflow.SAMPLE) {
+            if((pending() > (mask >> 1)) && ((sampleCounter.incrementAndGet() % sampleRate) != 0)) {
+                sampled.incrementAndGet();
+                return;
+            }
+        }
+        while(!offer(message)) {
+            if((policy != Overflow.BLOCK) || !running) {
+                dropped.incrementAndGet();
+                return;
+            }
+            wakeup();
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        if(waiting) wakeup();
+    }
+
+    private boolean offer(Object message) {
+        while(true) {
+            long h = head.get();
+            if(h - tail.get() > mask) return false;
+            if(head.compareAndSet(h, h + 1)) {
+                buffer.lazySet((int)h & mask, message);
+                return true;
+            }
+        }
+    }
+
+    private void wakeup() {
+        waiting = false;
+        LockSupport.unpark(drainer);
+    }
+
+    private int drain(List<String> batch) {
+        int max = batchSize;
+        long t = tail.get();
+        while(batch.size() < max) {
+            int index = (int)t & mask;
+            Object message = buffer.get(index);
+            if(message == null) break;
+            buffer.lazySet(index, null);
+            t++;
+            tail.lazySet(t);
+            batch.add(message.toString());
+        }
+        return batch.size();
+    }
+
+    private void deliver(List<String> batch) {
+        try {
+            consumer.consume(batch);
+            delivered.addAndGet(batch.size());
+        } catch(Exception e) {
+            failed.addAndGet(batch.size());
+        }
+        batch.clear();
+    }
+
+    private void drainLoop() {
+        List<String> batch = new ArrayList<>();
+        while(running) {
+            if(drain(batch) > 0) {
+                deliver(batch);
+            } else {
+                waiting = true;
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                waiting = false;
+            }
+        }
+        while(drain(batch) > 0) deliver(batch);
+    }
+
+    /**
+     * Stops background thread. Messages in buffer are delivered 
+     * before thread ends.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Collected rows of jdbc batch. Only bounded number of rows is 
+ * retained (first n rows and random sample of the rest), so 
+ * memory is bounded even for huge batches. Rows are Params for 
+ * prepared statements or sql texts for plain statements.
+ * @author antons
+ */
+public class Batch {
+
+    private final int first;
+    private final int samples;
+    private final Object[] rows;
+    private final int[] indexes;
+    private int retained = 0;
+    private int size = 0;
+
+    /**
+     * New instance
+     * @param first number of first rows to be retained
+     * @param samples number of randomly sampled rows to be retained
+     */
+    public Batch(int first, int samples) {
+        this.first = Math.max(0, first);
+        this.samples = Math.max(0, samples);
+        this.rows = new Object[this.first + this.samples];
+        this.indexes = new int[this.first + this.samples];
+    }
+    public static Batch instance(int first, int samples) { return new Batch(first, samples); }
+
+    /**
+     * Checks if next added row will be retained. So caller can skip 
+     * creation of row snapshot if it is not necessary.
+     * @return slot for next row or -1
+     */
+    public int nextSlot() {
+        if(size < first) return size;
+        if(samples == 0) return -1;
+        int n = size - first;
+        if(n < samples) return size;
+        int j = ThreadLocalRandom.current().nextInt(n + 1);
+        return (j < samples) ? first + j : -1;
+    }
+
+    /**
+     * Adds row to batch. 
+     * @param slot slot returned by nextSlot()
+     * @param row row to be retained (ignored if slot is -1)
+     */
+    public void add(int slot, Object row) {
+        if((slot >= 0) && (slot < rows.length)) {
+            rows[slot] = row;
+            indexes[slot] = size;
+            if(slot >= retained) retained = slot + 1;
+        }
+        size++;
+    }
+
+    /**
+     * Number of rows added to batch.
+     * @return count
+     */
+    public int size() { return size; }
+    /**
+     * Number of retained rows.
+     * @return count
+     */
+    public int retained() { return retained; }
+    /**
+     * Retained row
+     * @param i index of retained row (0 - retained()-1)
+     * @return row
+     */
+    public Object row(int i) { return rows[i]; }
+    /**
+     * Position of retained row in whole batch.
+     * @param i index of retained row (0 - retained()-1)
+     * @return position starting from 1
+     */
+    public int position(int i) { return indexes[i] + 1; }
+
+    /**
+     * Appends retained rows in form ' #1:[row] #2:[row] ...'
+     * @param sb target builder
+     * @return sb
+     */
+    public StringBuilder format(StringBuilder sb) {
+        int[] order = new int[retained];
+        for(int i = 0; i < retained; i++) order[i] = i;
+        for(int i = first + 1; i < retained; i++) {
+            int o = order[i];
+            int j = i - 1;
+            while((j >= first) && (indexes[order[j]] > indexes[o])) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = o;
+        }
+        int last = -1;
+        for(int i = 0; i < retained; i++) {
+            int o = order[i];
+            if((last >= 0) && (indexes[o] > last + 1)) sb.append(" ...");
+            sb.append(" #").append(indexes[o] + 1).append(":[");
+            Object row = rows[o];
+            if(row instanceof Params) {
+                Params p = (Params)row;
+                int len = sb.length();
+                p.format(sb);
+                if((sb.length() > len) && (sb.charAt(len) == ' ')) sb.deleteCharAt(len);
+            } else {
+                sb.append(row);
+            }
+            sb.append(']');
+            last = indexes[o];
+        }
+        if((last >= 0) && (last < size - 1)) sb.append(" ...");
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return format(new StringBuilder()).toString();
+    }
+}
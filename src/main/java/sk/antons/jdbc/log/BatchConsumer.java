@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.List;
+
+/**
+ * Log message consumer which process more messages at once. 
+ * It is used by AsyncConsumer for delivering of collected messages.
+ * Simple implementation is 
+ * <pre>
+ *   (messages) -> { for(String message : messages) log.debug(message); } 
+ * </pre>
+ * @author antons
+ */
+public interface BatchConsumer {
+
+    /**
+     * Process log messages. List is valid only during the call.
+     * @param messages messages to be logged
+     */
+    void consume(List<String> messages);    
+}
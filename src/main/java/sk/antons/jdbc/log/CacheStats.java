@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit and miss counters of statement caches.
+ * @author antons
+ */
+public class CacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public static CacheStats instance() { return new CacheStats(); }
+
+    public void hit() { hits.increment(); }
+    public void miss() { misses.increment(); }
+    public void eviction() { evictions.increment(); }
+
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+    public long evictions() { return evictions.sum(); }
+
+    /**
+     * Ratio of hits to all lookups.
+     * @return ratio from 0 to 1
+     */
+    public double hitRatio() {
+        long h = hits();
+        long all = h + misses();
+        return (all == 0) ? 0 : (double)h / all;
+    }
+
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "statement cache hits: " + hits() + " misses: " + misses() + " evictions: " + evictions();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+/**
+ * ConsumerStatus wrapper which remembers status of wrapped instance 
+ * for given time. It is usefull when real status check is expensive 
+ * or when it is called very often (each jdbc call).
+ * @author antons
+ */
+public class CachedConsumerStatus implements ConsumerStatus {
+
+    private ConsumerStatus status;
+    private long refreshMillis;
+    private volatile boolean on;
+    private volatile long nextCheck;
+
+    /**
+     * New instance 
+     * @param status real status 
+     * @param refreshMillis how long is status cached (in milliseconds)
+     */
+    public CachedConsumerStatus(ConsumerStatus status, long refreshMillis) {
+        this.status = status;
+        this.refreshMillis = refreshMillis;
+    }
+
+    /**
+     * Factory method for new instances
+     * @param status real status 
+     * @param refreshMillis how long is status cached (in milliseconds)
+     * @return new instance
+     */
+    public static CachedConsumerStatus instance(ConsumerStatus status, long refreshMillis) {
+        return new CachedConsumerStatus(status, refreshMillis);
+    }
+
+    @Override
+    public boolean isConsumerOn() {
+        long now = System.currentTimeMillis();
+        if(now >= nextCheck) {
+            on = status.isConsumerOn();
+            nextCheck = now + refreshMillis;
+        }
+        return on;
+    }
+    
+}
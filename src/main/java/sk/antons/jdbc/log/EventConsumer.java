@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+/**
+ * Structured log event consumer. Event is not formatted to text 
+ * until event.toString() (or event.format(sb)) is called. So 
+ * consumer can filter events or use event attributes directly.
+ * <pre>
+ *   (event) -> { if(event.time() > limit) log.debug(event.toString()); } 
+ * </pre>
+ * @author antons
+ */
+public interface EventConsumer {
+
+    /**
+     * Process log event.
+     * @param event event to be logged
+     */
+    void consume(LogEvent event);    
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers typical number of rows read from result sets of each 
+ * sql fingerprint and advises fetch size for next executions. 
+ * Typical row count is moving average of observed counts and advised 
+ * fetch size is limited by min and max.
+ * @author antons
+ */
+public class FetchSizeAdvisor {
+
+    private static final int MAX_STATEMENTS = 1000;
+
+    private final int min;
+    private final int max;
+    private final FingerprintMap<AtomicLong> rows = FingerprintMap.instance(MAX_STATEMENTS, key -> new AtomicLong(-1), new AtomicLong(-1));
+
+    /**
+     * New instance
+     * @param min min advised fetch size
+     * @param max max advised fetch size
+     */
+    public FetchSizeAdvisor(int min, int max) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+    }
+
+    public static FetchSizeAdvisor instance(int min, int max) { return new FetchSizeAdvisor(min, max); }
+
+    /**
+     * Records number of rows read from result set.
+     * @param sql executed sql
+     * @param count number of rows
+     */
+    public void observe(String sql, long count) {
+        AtomicLong typical = rows.get(sql);
+        if((typical == null) || (count < 0)) return;
+        long old = typical.get();
+        // new value has weight 1/4, concurrent updates may be lost
+        typical.lazySet((old < 0) ? count : old + ((count - old) >> 2));
+    }
+
+    /**
+     * Advised fetch size for sql.
+     * @param sql sql to be executed
+     * @return fetch size or 0 if sql was not observed yet
+     */
+    public int fetchSize(String sql) {
+        AtomicLong typical = rows.peek(sql);
+        if(typical == null) return 0;
+        long count = typical.get();
+        if(count < 0) return 0;
+        return (int)Math.max(min, Math.min(max, count + 1));
+    }
+    
+    public int min() { return min; }
+    public int max() { return max; }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded concurrent map of values per sql fingerprint (see SqlFingerprint). 
+ * Sql texts are cached, so fingerprint is computed only once for 
+ * repeated statements. When map is full all new fingerprints share 
+ * one 'other' value.
+ * @author antons
+ */
+public class FingerprintMap<T> {
+
+    private final int maxSize;
+    private final Function<String, T> factory;
+    private final T other;
+    private final ConcurrentHashMap<String, T> values = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, T> sqls = new ConcurrentHashMap<>();
+
+    /**
+     * New instance
+     * @param maxSize max number of fingerprints
+     * @param factory creates value for new fingerprint
+     * @param other value shared by fingerprints over limit
+     */
+    public FingerprintMap(int maxSize, Function<String, T> factory, T other) {
+        this.maxSize = Math.max(1, maxSize);
+        this.factory = factory;
+        this.other = other;
+    }
+
+    public static <T> FingerprintMap<T> instance(int maxSize, Function<String, T> factory, T other) {
+        return new FingerprintMap<>(maxSize, factory, other);
+    }
+
+    /**
+     * Value for fingerprint of given sql. Value is created if necessary.
+     * @param sql sql text
+     * @return value or null if sql is null
+     */
+    public T get(String sql) {
+        if(sql == null) return null;
+        T value = sqls.get(sql);
+        if(value != null) return value;
+        String fingerprint = SqlFingerprint.of(sql);
+        value = values.get(fingerprint);
+        if(value == null) {
+            if(values.size() >= maxSize) value = other;
+            else value = values.computeIfAbsent(fingerprint, factory);
+        }
+        if(sqls.size() < maxSize * 4) sqls.putIfAbsent(sql, value);
+        return value;
+    }
+
+    /**
+     * Value for fingerprint of given sql.
+     * @param sql sql text
+     * @return value or null if value was not created yet
+     */
+    public T peek(String sql) {
+        if(sql == null) return null;
+        T value = sqls.get(sql);
+        if(value != null) return value;
+        return values.get(SqlFingerprint.of(sql));
+    }
+
+    /**
+     * Values of all fingerprints (without other value).
+     * @return values
+     */
+    public Collection<T> values() { return values.values(); }
+    public T other() { return other; }
+
+    public void clear() {
+        values.clear();
+        sqls.clear();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+/**
+ * Fixed size ring buffer of last events of one connection. Recorded 
+ * events are emitted only when slow or failing statement occurs. 
+ * So there is context of incident without logging everything.
+ * 
+ * Instance is not thread safe. It is used by one connection the same 
+ * way as connection itself.
+ * @author antons
+ */
+public class FlightRecorder {
+
+    private final LogEvent[] events;
+    private int next = 0;
+    private int size = 0;
+
+    public FlightRecorder(int capacity) {
+        this.events = new LogEvent[Math.max(1, capacity)];
+    }
+    public static FlightRecorder instance(int capacity) { return new FlightRecorder(capacity); }
+
+    /**
+     * Records event. Oldest event is forgotten if recorder is full.
+     * @param event event to be recorded
+     */
+    public void add(LogEvent event) {
+        if(event == null) return;
+        events[next] = event;
+        next = (next + 1) % events.length;
+        if(size < events.length) size++;
+    }
+
+    /**
+     * Number of recorded events.
+     * @return count
+     */
+    public int size() { return size; }
+
+    /**
+     * Emits all recorded events (from oldest) to log configuration 
+     * and clears recorder.
+     * @param config target configuration
+     */
+    public void dump(LogConfig config) {
+        int start = (next - size + events.length) % events.length;
+        for(int i = 0; i < size; i++) {
+            int index = (start + i) % events.length;
+            config.emit(events[index].recorded());
+            events[index] = null;
+        }
+        size = 0;
+        next = 0;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+/**
+ * Latency histograms collected by log wrappers.
+ * <ul>
+ * <li>execute - statement executions (executeQuery/executeUpdate)</li>
+ * <li>transaction - commits and rollbacks</li>
+ * <li>firstRow - time from first ResultSet.next call to first row</li>
+ * <li>allRows - time from first ResultSet.next call to last row</li>
+ * </ul>
+ * @author antons
+ */
+public class JdbcMetrics {
+
+    private final LatencyHistogram execute = LatencyHistogram.instance();
+    private final LatencyHistogram transaction = LatencyHistogram.instance();
+    private final LatencyHistogram firstRow = LatencyHistogram.instance();
+    private final LatencyHistogram allRows = LatencyHistogram.instance();
+
+    public static JdbcMetrics instance() { return new JdbcMetrics(); }
+
+    public LatencyHistogram execute() { return execute; }
+    public LatencyHistogram transaction() { return transaction; }
+    public LatencyHistogram firstRow() { return firstRow; }
+    public LatencyHistogram allRows() { return allRows; }
+
+    /**
+     * Clears all histograms.
+     */
+    public void reset() {
+        execute.reset();
+        transaction.reset();
+        firstRow.reset();
+        allRows.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("jdbc metrics (ms)");
+        sb.append("\n  execute ").append(execute);
+        sb.append("\n  transaction ").append(transaction);
+        sb.append("\n  resultset first row ").append(firstRow);
+        sb.append("\n  resultset all rows ").append(allRows);
+        return sb.toString();
+    }
+}
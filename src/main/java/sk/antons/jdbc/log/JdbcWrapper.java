@@ -15,19 +15,25 @@
  */
 package sk.antons.jdbc.log;
 
-import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import sk.antons.jdbc.log.LogConfig;
+import sk.antons.jdbc.log.invocation.CommonHandler;
 import sk.antons.jdbc.log.invocation.ConnectionHandler;
+import sk.antons.jdbc.log.invocation.LogConnection;
+import sk.antons.jdbc.log.invocation.LogPreparedStatement;
+import sk.antons.jdbc.log.invocation.LogResultSet;
+import sk.antons.jdbc.log.invocation.LogStatement;
 import sk.antons.jdbc.log.invocation.PreparedStatementHandler;
 import sk.antons.jdbc.log.invocation.ResultSetHandler;
 import sk.antons.jdbc.log.invocation.StatementHandler;
 
 /**
- * Simple factory for wrapping jdbc instancies.
+ * Simple factory for wrapping jdbc instancies. Wrappers are plain 
+ * delegating classes (no reflection proxies), so not logged methods 
+ * are called directly on wrapped instance.
  * @author antons
  */
 public class JdbcWrapper {
@@ -40,11 +46,21 @@ public class JdbcWrapper {
      * @param stmidentity identity of statement
      * @return wrapped instance
      */
-    public static ResultSet wrap(ResultSet rs, LogConfig config, int connidentity, int stmidentity) {
-        ResultSet proxy = (ResultSet) Proxy.newProxyInstance(JdbcWrapper.class.getClassLoader(), 
-            new Class[] { ResultSet.class }, 
-            new ResultSetHandler(rs, config, connidentity, stmidentity));
-        return proxy;
+    public static ResultSet wrap(ResultSet rs, LogConfig config, long connidentity, long stmidentity) {
+        ResultSetHandler handler = ResultSetHandler.instance(rs, config, connidentity, stmidentity);
+        return track(new LogResultSet(rs, handler), handler, null);
+    }
+    
+    /**
+     * Wraps ResultSet instance created by logged statement.
+     * @param rs instance to be wrapped
+     * @param statement handler of statement which created result set
+     * @param sql text of executed statement
+     * @return wrapped instance
+     */
+    public static ResultSet wrap(ResultSet rs, CommonHandler statement, String sql) {
+        ResultSetHandler handler = ResultSetHandler.instance(rs, statement, sql);
+        return track(new LogResultSet(rs, handler), handler, statement);
     }
     
     /**
@@ -54,11 +70,20 @@ public class JdbcWrapper {
      * @param connidentity identity of connection
      * @return wrapped instance
      */
-    public static Statement wrap(Statement stm, LogConfig config, int connidentity) {
-        Statement proxy = (Statement) Proxy.newProxyInstance(JdbcWrapper.class.getClassLoader(), 
-            new Class[] { Statement.class }, 
-            new StatementHandler(stm, config, connidentity));
-        return proxy;
+    public static Statement wrap(Statement stm, LogConfig config, long connidentity) {
+        StatementHandler handler = StatementHandler.instance(stm, config, connidentity);
+        return track(new LogStatement(stm, handler), handler, null);
+    }
+    
+    /**
+     * Wraps Statement instance created by logged connection.
+     * @param stm instance to be wrapped
+     * @param connection handler of connection
+     * @return wrapped instance
+     */
+    public static Statement wrap(Statement stm, ConnectionHandler connection) {
+        StatementHandler handler = StatementHandler.instance(stm, connection);
+        return track(new LogStatement(stm, handler), handler, connection);
     }
     
     /**
@@ -69,11 +94,21 @@ public class JdbcWrapper {
      * @param connidentity identity of connection
      * @return wrapped instance
      */
-    public static PreparedStatement wrap(PreparedStatement stm, String statement, LogConfig config, int connidentity) {
-        PreparedStatement proxy = (PreparedStatement) Proxy.newProxyInstance(JdbcWrapper.class.getClassLoader(), 
-            new Class[] { PreparedStatement.class }, 
-            new PreparedStatementHandler(stm, statement, config, connidentity));
-        return proxy;
+    public static PreparedStatement wrap(PreparedStatement stm, String statement, LogConfig config, long connidentity) {
+        PreparedStatementHandler handler = PreparedStatementHandler.instance(stm, statement, config, connidentity);
+        return track(new LogPreparedStatement(stm, handler), handler, null);
+    }
+
+    /**
+     * Wraps PreparedStatement instance created by logged connection.
+     * @param stm instance to be wrapped
+     * @param statement text of prepared statement
+     * @param connection handler of connection
+     * @return wrapped instance
+     */
+    public static PreparedStatement wrap(PreparedStatement stm, String statement, ConnectionHandler connection) {
+        PreparedStatementHandler handler = PreparedStatementHandler.instance(stm, statement, connection);
+        return track(new LogPreparedStatement(stm, handler), handler, connection);
     }
 
     /**
@@ -83,9 +118,12 @@ public class JdbcWrapper {
      * @return wrapped instance
      */
     public static Connection wrap(Connection conn, LogConfig config) {
-        Connection proxy = (Connection) Proxy.newProxyInstance(JdbcWrapper.class.getClassLoader(), 
-            new Class[] { Connection.class }, 
-            new ConnectionHandler(conn, config));
-        return proxy;
+        ConnectionHandler handler = ConnectionHandler.instance(conn, config);
+        return track(new LogConnection(conn, handler), handler, null);
+    }
+
+    private static <T> T track(T wrapper, CommonHandler handler, CommonHandler parent) {
+        handler.track(wrapper, parent);
+        return wrapper;
     }
 }
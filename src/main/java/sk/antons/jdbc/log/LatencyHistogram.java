@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with fixed number of buckets. 
+ * Values are nanoseconds. Each power of two range is split to 
+ * 8 buckets so relative error of percentiles is less than 12.5%.
+ * @author antons
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public static LatencyHistogram instance() { return new LatencyHistogram(); }
+
+    /**
+     * Adds one value to histogram.
+     * @param nanos measured time in nanoseconds
+     */
+    public void record(long nanos) {
+        if(nanos < 0) nanos = 0;
+        buckets.incrementAndGet(index(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long m = max.get();
+        while(nanos > m) {
+            if(max.compareAndSet(m, nanos)) break;
+            m = max.get();
+        }
+    }
+
+    /**
+     * Number of recorded values.
+     * @return count
+     */
+    public long count() { return count.get(); }
+    
+    /**
+     * Maximal recorded value.
+     * @return max in nanoseconds
+     */
+    public long max() { return max.get(); }
+    
+    /**
+     * Average of recorded values.
+     * @return average in nanoseconds
+     */
+    public long mean() {
+        long c = count.get();
+        return (c == 0) ? 0 : total.get() / c;
+    }
+
+    /**
+     * Value for given percentile. (Upper bound of bucket where 
+     * percentile falls, but never more than max.)
+     * @param percentile percentile 0 - 100 (like 50, 99, 99.9)
+     * @return value in nanoseconds
+     */
+    public long percentile(double percentile) {
+        long c = count.get();
+        if(c == 0) return 0;
+        long limit = (long)Math.ceil(c * percentile / 100);
+        if(limit < 1) limit = 1;
+        long sum = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            sum += buckets.get(i);
+            if(sum >= limit) return Math.min(upper(i), max.get());
+        }
+        return max.get();
+    }
+
+    public long p50() { return percentile(50); }
+    public long p99() { return percentile(99); }
+    public long p999() { return percentile(99.9); }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently 
+     * with reset can be partially lost.
+     */
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    private static int index(long value) {
+        if(value < SUB_COUNT) return (int)value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int)(value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    private static long upper(int index) {
+        if(index < SUB_COUNT) return index;
+        int exp = index / SUB_COUNT + SUB_BITS - 1;
+        int sub = index % SUB_COUNT;
+        long lower = ((long)(SUB_COUNT + sub)) << (exp - SUB_BITS);
+        return lower + (1L << (exp - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Appends nanoseconds as milliseconds with three decimal places.
+     * @param sb target builder
+     * @param nanos time in nanoseconds
+     * @return sb
+     */
+    public static StringBuilder millis(StringBuilder sb, long nanos) {
+        if(nanos < 0) {
+            sb.append('-');
+            nanos = -nanos;
+        }
+        long micros = nanos / 1000;
+        sb.append(micros / 1000).append('.');
+        long frac = micros % 1000;
+        if(frac < 100) sb.append('0');
+        if(frac < 10) sb.append('0');
+        sb.append(frac);
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("count: ").append(count());
+        millis(sb.append(" mean: "), mean());
+        millis(sb.append(" p50: "), p50());
+        millis(sb.append(" p99: "), p99());
+        millis(sb.append(" p999: "), p999());
+        millis(sb.append(" max: "), max());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks wrapped connections, statements and result sets which are 
+ * not closed. Wrappers are registered with phantom references, so 
+ * wrapper garbage collected without close() is reported as leak 
+ * from background thread. Statements (result sets) closed together 
+ * with their connection (statement) are not leaks.
+ * 
+ * Acquisition stack trace is captured only for sample of acquisitions 
+ * so overhead is bounded.
+ * <pre>
+ *   LogConfig config = LogConfig.instance(...).leakDetection(0.01);
+ *   long open = config.leakDetector().openConnections();
+ * </pre>
+ * @author antons
+ */
+public class LeakDetector implements AutoCloseable {
+
+    public static enum Kind { CONNECTION, STATEMENT, RESULTSET }
+
+    private final LogConfig config;
+    private final double stackSample;
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final Set<Tracked> tracked = ConcurrentHashMap.newKeySet();
+    private final LongAdder leaked = new LongAdder();
+    private final Thread cleaner;
+    private volatile boolean running = true;
+
+    /**
+     * New instance
+     * @param config configuration used for leak reports
+     * @param stackSample fraction of acquisitions with captured stack trace (0 - 1)
+     */
+    public LeakDetector(LogConfig config, double stackSample) {
+        this.config = config;
+        this.stackSample = Math.max(0, Math.min(1, stackSample));
+        this.cleaner = new Thread(this::cleanLoop, "jdbc-log-leaks");
+        this.cleaner.setDaemon(true);
+        this.cleaner.start();
+    }
+
+    public static LeakDetector instance(LogConfig config, double stackSample) { return new LeakDetector(config, stackSample); }
+
+    /**
+     * Registers new wrapper.
+     * @param wrapper wrapped connection, statement or result set
+     * @param connection connection identity
+     * @param statement statement identity
+     * @param parent tracking of connection (statement) which created wrapper or null
+     * @return tracking which must be closed when wrapper is closed
+     */
+    public Tracked track(Object wrapper, long connection, long statement, Tracked parent) {
+        Kind kind = (wrapper instanceof ResultSet) ? Kind.RESULTSET 
+            : (wrapper instanceof Statement) ? Kind.STATEMENT 
+            : Kind.CONNECTION;
+        Throwable stack = null;
+        if((stackSample > 0) && ((stackSample >= 1) || (ThreadLocalRandom.current().nextDouble() < stackSample))) {
+            stack = new Throwable();
+        }
+        Tracked t = new Tracked(wrapper, queue, kind, connection, statement, stack, parent, this);
+        tracked.add(t);
+        return t;
+    }
+
+    /**
+     * Number of connections which are not closed.
+     * @return count
+     */
+    public long openConnections() { return open(Kind.CONNECTION); }
+    
+    /**
+     * Number of statements which are not closed (explicitly or with connection).
+     * @return count
+     */
+    public long openStatements() { return open(Kind.STATEMENT); }
+    
+    /**
+     * Number of result sets (cursors) which are not closed 
+     * (explicitly or with statement).
+     * @return count
+     */
+    public long openResultSets() { return open(Kind.RESULTSET); }
+    
+    /**
+     * Number of reported leaks.
+     * @return count
+     */
+    public long leaked() { return leaked.sum(); }
+
+    private long open(Kind kind) {
+        long count = 0;
+        Iterator<Tracked> iter = tracked.iterator();
+        while(iter.hasNext()) {
+            Tracked t = iter.next();
+            if(t.isClosed()) iter.remove();
+            else if(t.kind == kind) count++;
+        }
+        return count;
+    }
+
+    private void cleanLoop() {
+        while(running) {
+            try {
+                Tracked t = (Tracked)queue.remove();
+                if(tracked.remove(t) && !t.isClosed()) {
+                    leaked.increment();
+                    if(config.consumerStatus().isConsumerOn()) report(t);
+                }
+            } catch(InterruptedException e) {
+                // closed
+            } catch(Throwable e) {
+                // reporting must not stop detection
+            }
+        }
+    }
+
+    private void report(Tracked t) {
+        config.emit(LogEvent.instance(LogEvent.Type.LEAK, t.connection, t.statement)
+            .node(config.node())
+            .operation(t.kind.name().toLowerCase())
+            .site(stack(t.stack)));
+    }
+
+    private static String stack(Throwable stack) {
+        if(stack == null) return null;
+        StringBuilder sb = new StringBuilder();
+        for(StackTraceElement element : stack.getStackTrace()) {
+            if(element.getClassName().startsWith("sk.antons.jdbc.log.")) continue;
+            sb.append("\n\tat ").append(element);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stops background thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        cleaner.interrupt();
+    }
+
+    /**
+     * Tracking of one wrapper.
+     */
+    public static class Tracked extends PhantomReference<Object> {
+        private final Kind kind;
+        private final long connection;
+        private final long statement;
+        private final Throwable stack;
+        private final Tracked parent;
+        private final LeakDetector detector;
+        private volatile boolean closed;
+
+        private Tracked(Object wrapper, ReferenceQueue<Object> queue, Kind kind
+                , long connection, long statement, Throwable stack
+                , Tracked parent, LeakDetector detector) {
+            super(wrapper, queue);
+            this.kind = kind;
+            this.connection = connection;
+            this.statement = statement;
+            this.stack = stack;
+            this.parent = parent;
+            this.detector = detector;
+        }
+
+        /**
+         * Called when wrapper is closed.
+         */
+        public void close() {
+            closed = true;
+            detector.tracked.remove(this);
+        }
+
+        public Kind kind() { return kind; }
+        
+        /**
+         * Checks if wrapper or its parent was closed.
+         * @return true if closed
+         */
+        public boolean isClosed() {
+            return closed || ((parent != null) && parent.isClosed());
+        }
+    }
+}
@@ -24,11 +24,26 @@ package sk.antons.jdbc.log;
 public class LogConfig {
 
     private Consumer consumer;
+    private EventConsumer eventConsumer;
     private ConsumerStatus consumerStatus;
 
     private boolean logStatement = true;
     private boolean logResultSet = true;
     private boolean logTransaction = true;
+    private boolean unwrapWhenOff = false;
+    private JdbcMetrics metrics = null;
+    private StatementStats stats = null;
+    private LogLimiter limiter = null;
+    private FetchSizeAdvisor fetchSizeAdvisor = null;
+    private LeakDetector leakDetector = null;
+    private int statementCache = 0;
+    private CacheStats statementCacheStats = null;
+    private String node = null;
+    private long slowThreshold = 0;
+    private int flightRecorder = 0;
+    private int repeatThreshold = 0;
+    private int batchFirst = 10;
+    private int batchSamples = 10;
     
     /**
      * New instance 
@@ -80,10 +95,297 @@ public class LogConfig {
         return this;
     }
 
+    /**
+     * Node identity. It is added to each log message, so messages from 
+     * more nodes in cluster can be correlated. (Identities.jvm() can be 
+     * used as value.) (default null)
+     * @param node
+     * @return this
+     */
+    public LogConfig node(String node) {
+        this.node = node;
+        return this;
+    }
+
+    /**
+     * Only statements (or result set reads) slower than given time 
+     * (or failed ones) are logged. (default 0 - all statements are logged)
+     * @param millis threshold in milliseconds
+     * @return this
+     */
+    public LogConfig slowThreshold(long millis) {
+        slowThreshold = Math.max(0, millis) * 1000000L;
+        return this;
+    }
+
+    /**
+     * Each connection remembers last events (statements, result sets 
+     * and transactions). They are logged before slow or failed statement. 
+     * Used only together with slowThreshold, otherwise all events are 
+     * logged anyway. (default 0 - no recording)
+     * @param size number of recorded events per connection
+     * @return this
+     */
+    public LogConfig flightRecorder(int size) {
+        flightRecorder = Math.max(0, size);
+        return this;
+    }
+
+    /**
+     * Fraction of statements (with their result sets) and transactions 
+     * to be logged. Decision is made before log message is created. 
+     * Failed statements are always logged. (default 1 - all are logged)
+     * @param rate value from 0 to 1
+     * @return this
+     */
+    public LogConfig sample(double rate) {
+        limiter().sample(rate);
+        return this;
+    }
+
+    /**
+     * Max number of log messages per second. Failed statements 
+     * are always logged. (default 0 - unlimited)
+     * @param perSecond
+     * @return this
+     */
+    public LogConfig rateLimit(int perSecond) {
+        limiter().rateLimit(perSecond);
+        return this;
+    }
+
+    /**
+     * Max number of log messages per second for one sql fingerprint 
+     * (see SqlFingerprint). (default 0 - unlimited)
+     * @param perSecond
+     * @return this
+     */
+    public LogConfig statementRateLimit(int perSecond) {
+        limiter().statementRateLimit(perSecond);
+        return this;
+    }
+
+    /**
+     * Number of messages suppressed by sampling and rate limits 
+     * is logged periodically. (default no summary)
+     * @param periodMillis summary period in milliseconds
+     * @return this
+     */
+    public LogConfig suppressedSummary(long periodMillis) {
+        limiter().schedule(this, periodMillis);
+        return this;
+    }
+
+    /**
+     * When the same statement (sql fingerprint) is executed more than 
+     * given times in one transaction (or connection lifetime in auto 
+     * commit mode) its next executions are not logged, but one 
+     * aggregated message is logged at the end of transaction. Failed 
+     * executions are always logged. (default 0 - disabled)
+     * @param threshold number of logged executions
+     * @return this
+     */
+    public LogConfig repeatThreshold(int threshold) {
+        repeatThreshold = Math.max(0, threshold);
+        return this;
+    }
+
+    /**
+     * Number of batch rows (parameter sets) retained for logging. 
+     * First rows and random sample of the rest are retained. 
+     * (default 10 and 10)
+     * @param first number of first rows
+     * @param samples number of sampled rows
+     * @return this
+     */
+    public LogConfig batch(int first, int samples) {
+        batchFirst = first;
+        batchSamples = samples;
+        return this;
+    }
+
+    /**
+     * Structured event consumer. If it is defined events are sent to 
+     * this consumer instead of text consumer. (default null)
+     * @param consumer
+     * @return this
+     */
+    public LogConfig events(EventConsumer consumer) {
+        eventConsumer = consumer;
+        return this;
+    }
+
+    /**
+     * Wraps current consumer with AsyncConsumer. So messages are 
+     * delivered to real consumer from background thread.
+     * @param capacity size of message buffer
+     * @param overflow policy used when buffer is full
+     * @return this
+     */
+    public LogConfig async(int capacity, AsyncConsumer.Overflow overflow) {
+        consumer = AsyncConsumer.instance(consumer, capacity).overflow(overflow);
+        return this;
+    }
+    
+    /**
+     * Consumer status is cached for given time. Real status is 
+     * checked only once per refreshMillis. (default not cached)
+     * @param refreshMillis cache time in milliseconds
+     * @return this
+     */
+    public LogConfig statusCache(long refreshMillis) {
+        if(refreshMillis > 0) consumerStatus = CachedConsumerStatus.instance(consumerStatus, refreshMillis);
+        return this;
+    }
+    
+    /**
+     * true if connections should not be wrapped when consumer is off. 
+     * Such connection has no overhead, but it will not log anything 
+     * even if consumer is switched on later. (default false)
+     * @param unwrap
+     * @return this
+     */
+    public LogConfig unwrapWhenOff(boolean unwrap) {
+        unwrapWhenOff = unwrap;
+        return this;
+    }
+
+    /**
+     * true if latency histograms should be collected. Metrics are 
+     * collected independently of consumer status. (default false)
+     * @param collect
+     * @return this
+     */
+    public LogConfig metrics(boolean collect) {
+        metrics = collect ? JdbcMetrics.instance() : null;
+        return this;
+    }
+
+    /**
+     * Statements are aggregated by sql fingerprint and count, time, 
+     * rows and errors are collected for each of them (see StatementStats). 
+     * Statistics are collected independently of consumer status. 
+     * (default 0 - no statistics)
+     * @param maxStatements max number of collected fingerprints
+     * @return this
+     */
+    public LogConfig stats(int maxStatements) {
+        stats = (maxStatements > 0) ? StatementStats.instance(maxStatements) : null;
+        return this;
+    }
+
+    /**
+     * Typical number of rows read from result set is remembered for 
+     * each sql fingerprint and fetch size of next executions is set 
+     * accordingly (see FetchSizeAdvisor). Explicitly set fetch size 
+     * is not changed. (default disabled)
+     * @param min min fetch size
+     * @param max max fetch size
+     * @return this
+     */
+    public LogConfig adaptiveFetchSize(int min, int max) {
+        fetchSizeAdvisor = FetchSizeAdvisor.instance(min, max);
+        return this;
+    }
+
+    /**
+     * Connections, statements and result sets garbage collected without 
+     * close() are logged (see LeakDetector). Acquisition stack trace 
+     * is logged only for given fraction of acquisitions. (default disabled)
+     * @param stackSample fraction of acquisitions with stack trace (0 - 1)
+     * @return this
+     */
+    public LogConfig leakDetection(double stackSample) {
+        if(leakDetector != null) leakDetector.close();
+        leakDetector = LeakDetector.instance(this, stackSample);
+        return this;
+    }
+
+    /**
+     * Each connection caches given number of prepared statements (LRU). 
+     * Closed statement is returned to cache and it is reused when the 
+     * same sql (with the same result set options) is prepared again. 
+     * Statement is closed when it is evicted or when connection is closed. 
+     * (default 0 - no cache)
+     * @param size number of cached statements per connection
+     * @return this
+     */
+    public LogConfig statementCache(int size) {
+        statementCache = Math.max(0, size);
+        statementCacheStats = (statementCache > 0) ? CacheStats.instance() : null;
+        return this;
+    }
+
+    /**
+     * Checks if new connection should be wrapped.
+     * @return false if connection can be used without wrapping
+     */
+    public boolean wrapConnection() {
+        if(collects() || (statementCache > 0)) return true;
+        if(unwrapWhenOff && !consumerStatus.isConsumerOn()) return false;
+        return true;
+    }
+
+    /**
+     * Checks if metrics, statistics, row counts or leaks are collected.
+     * @return true if wrappers must be used even if consumer is off
+     */
+    public boolean collects() {
+        return (metrics != null) || (stats != null) || (fetchSizeAdvisor != null) || (leakDetector != null);
+    }
+
+    /**
+     * Sends event to event consumer. If there is no event consumer 
+     * event is formatted and sent to text consumer. (Consumers which 
+     * implements EventConsumer as well receives unformatted events.)
+     * @param event event to be logged
+     */
+    public void emit(LogEvent event) {
+        if(eventConsumer != null) eventConsumer.consume(event);
+        else if(consumer instanceof EventConsumer) ((EventConsumer)consumer).consume(event);
+        else consumer.consume(event.toString());
+    }
 
     public Consumer consumer() { return consumer; }
+    public EventConsumer eventConsumer() { return eventConsumer; }
     public ConsumerStatus consumerStatus() { return consumerStatus; }
     public boolean logStatement() { return logStatement; }
     public boolean logTransaction() { return logTransaction; }
     public boolean logResult() { return logResultSet; }
+    public JdbcMetrics metrics() { return metrics; }
+    public StatementStats stats() { return stats; }
+    public FetchSizeAdvisor fetchSizeAdvisor() { return fetchSizeAdvisor; }
+    public LeakDetector leakDetector() { return leakDetector; }
+    public int statementCache() { return statementCache; }
+    /**
+     * Hits and misses of statement caches.
+     * @return stats or null if statement cache is not enabled
+     */
+    public CacheStats statementCacheStats() { return statementCacheStats; }
+    /**
+     * Sampling and rate limits. Limiter is created if it does not exist.
+     * @return limiter
+     */
+    public LogLimiter limiter() {
+        if(limiter == null) limiter = LogLimiter.instance();
+        return limiter;
+    }
+    /**
+     * Checks if event should be logged (see sample, rateLimit).
+     * @param sql statement of event or null
+     * @return false if event is suppressed
+     */
+    public boolean admit(String sql) {
+        return (limiter == null) || limiter.admit(sql);
+    }
+    public String node() { return node; }
+    /**
+     * Slow threshold in nanoseconds (0 if not defined).
+     * @return threshold
+     */
+    public long slowThreshold() { return slowThreshold; }
+    public int flightRecorder() { return flightRecorder; }
+    public int repeatThreshold() { return repeatThreshold; }
+    public int batchFirst() { return batchFirst; }
+    public int batchSamples() { return batchSamples; }
 }
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Structured jdbc log event. Event holds raw values and it is 
+ * formatted to text only when toString() (or format()) is called. 
+ * Formatting uses per thread reusable buffer.
+ * 
+ * Times are in nanoseconds.
+ * @author antons
+ */
+public class LogEvent {
+
+    public static enum Type { 
+        /** commit or rollback */
+        TRANSACTION, 
+        /** statement execution which returns result set */
+        QUERY, 
+        /** statement execution which returns update count */
+        UPDATE, 
+        /** result set close */
+        RESULTSET, 
+        /** batch execution */
+        BATCH, 
+        /** statement executed many times in one transaction */
+        REPEAT, 
+        /** connection, statement or result set garbage collected without close */
+        LEAK 
+    }
+
+    private static final int MAX_COUNTS = 10;
+
+    private static final int MAX_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> buffer = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() { return new StringBuilder(256); }
+    };
+
+    private final Type type;
+    private final long connection;
+    private final long statement;
+    private String node;
+    private String operation;
+    private String sql;
+    private Params params;
+    private long result;
+    private long rows;
+    private long time;
+    private long firstRowTime;
+    private long allRowsTime;
+    private Batch batch;
+    private int[] counts;
+    private long[] largeCounts;
+    private Throwable error;
+    private String site;
+    private long statements;
+    private long dbTime;
+    private long wallTime;
+    private boolean recorded;
+
+    public LogEvent(Type type, long connection, long statement) {
+        this.type = type;
+        this.connection = connection;
+        this.statement = statement;
+    }
+    public static LogEvent instance(Type type, long connection, long statement) { return new LogEvent(type, connection, statement); }
+
+    public LogEvent node(String value) { this.node = value; return this; }
+    public LogEvent operation(String value) { this.operation = value; return this; }
+    public LogEvent sql(String value) { this.sql = value; return this; }
+    public LogEvent params(Params value) { this.params = value; return this; }
+    public LogEvent result(long value) { this.result = value; return this; }
+    public LogEvent rows(long value) { this.rows = value; return this; }
+    public LogEvent time(long value) { this.time = value; return this; }
+    public LogEvent firstRowTime(long value) { this.firstRowTime = value; return this; }
+    public LogEvent allRowsTime(long value) { this.allRowsTime = value; return this; }
+    public LogEvent batch(Batch value) { this.batch = value; return this; }
+    public LogEvent counts(int[] value) { this.counts = value; return this; }
+    public LogEvent largeCounts(long[] value) { this.largeCounts = value; return this; }
+    public LogEvent error(Throwable value) { this.error = value; return this; }
+    public LogEvent site(String value) { this.site = value; return this; }
+    public LogEvent statements(long value) { this.statements = value; return this; }
+    public LogEvent dbTime(long value) { this.dbTime = value; return this; }
+    public LogEvent wallTime(long value) { this.wallTime = value; return this; }
+
+    public Type type() { return type; }
+    /**
+     * Connection identity
+     * @return identity
+     */
+    public long connection() { return connection; }
+    /**
+     * Statement identity (0 for connection events)
+     * @return identity
+     */
+    public long statement() { return statement; }
+    /**
+     * Node identity (null if it is not configured)
+     * @return identity
+     */
+    public String node() { return node; }
+    /**
+     * Operation name (commit/rollback for transaction events, 
+     * connection/statement/resultset for leak events)
+     * @return name
+     */
+    public String operation() { return operation; }
+    public String sql() { return sql; }
+    /**
+     * Parameters of prepared statement (null for plain statements)
+     * @return parameters
+     */
+    public Params params() { return params; }
+    /**
+     * Update count of UPDATE events.
+     * @return count
+     */
+    public long result() { return result; }
+    /**
+     * Row count of RESULTSET events (execution count of REPEAT events, 
+     * affected and read rows of TRANSACTION events).
+     * @return count
+     */
+    public long rows() { return rows; }
+    /**
+     * Time of invocation in nanoseconds.
+     * @return time
+     */
+    public long time() { return time; }
+    public long firstRowTime() { return firstRowTime; }
+    public long allRowsTime() { return allRowsTime; }
+    /**
+     * Rows of BATCH events.
+     * @return batch
+     */
+    public Batch batch() { return batch; }
+    /**
+     * Update counts of BATCH events (executeBatch).
+     * @return counts or null
+     */
+    public int[] counts() { return counts; }
+    /**
+     * Update counts of BATCH events (executeLargeBatch).
+     * @return counts or null
+     */
+    public long[] largeCounts() { return largeCounts; }
+    public Throwable error() { return error; }
+    public boolean isFail() { return error != null; }
+    /**
+     * Call site of REPEAT events (first stack frame outside of jdbc) 
+     * or acquisition stack trace of LEAK events.
+     * @return call site or null
+     */
+    public String site() { return site; }
+    /**
+     * Number of statements in transaction of TRANSACTION events.
+     * @return count (0 if there was no statement)
+     */
+    public long statements() { return statements; }
+    /**
+     * Sum of statement execution times in transaction.
+     * @return time in nanoseconds
+     */
+    public long dbTime() { return dbTime; }
+    /**
+     * Time from start of first statement to end of transaction 
+     * (difference to dbTime is time spent out of database).
+     * @return time in nanoseconds
+     */
+    public long wallTime() { return wallTime; }
+    /**
+     * True for events emitted from flight recorder (they were not 
+     * logged when they occurred).
+     * @return true if event is recorded
+     */
+    public boolean isRecorded() { return recorded; }
+    
+    /**
+     * Copy of event marked as recorded.
+     * @return new event
+     */
+    public LogEvent recorded() {
+        LogEvent e = new LogEvent(type, connection, statement);
+        e.node = node;
+        e.operation = operation;
+        e.sql = sql;
+        e.params = params;
+        e.result = result;
+        e.rows = rows;
+        e.time = time;
+        e.firstRowTime = firstRowTime;
+        e.allRowsTime = allRowsTime;
+        e.batch = batch;
+        e.counts = counts;
+        e.largeCounts = largeCounts;
+        e.error = error;
+        e.site = site;
+        e.statements = statements;
+        e.dbTime = dbTime;
+        e.wallTime = wallTime;
+        e.recorded = true;
+        return e;
+    }
+
+    /**
+     * Appends text form of event to given builder.
+     * @param sb target builder
+     * @return sb
+     */
+    public StringBuilder format(StringBuilder sb) {
+        sb.append("jdbc");
+        if(node != null) sb.append(' ').append(node);
+        if((connection > 0) && (statement > 0)) sb.append(" [").append(connection).append("][").append(statement).append(']');
+        else if(connection > 0) sb.append(" [").append(connection).append(']');
+        if(recorded) sb.append(" (recorded)");
+        switch(type) {
+            case TRANSACTION:
+                sb.append(' ').append(operation);
+                if(statements > 0) {
+                    sb.append(" statements: ").append(statements);
+                    sb.append(" rows: ").append(rows);
+                    LatencyHistogram.millis(sb.append(" db time: "), dbTime);
+                    LatencyHistogram.millis(sb.append(" wall time: "), wallTime);
+                }
+                break;
+            case QUERY:
+            case UPDATE:
+                sb.append(" statement: ").append(sql);
+                if(params != null) params.format(sb.append(" params: "));
+                if(type == Type.UPDATE) {
+                    sb.append(" result: ");
+                    if(error == null) sb.append(result);
+                    else sb.append("null");
+                }
+                break;
+            case RESULTSET:
+                sb.append(" resultset row count: ").append(rows);
+                LatencyHistogram.millis(sb.append(" first row time: "), firstRowTime);
+                LatencyHistogram.millis(sb.append(" all rows time: "), allRowsTime);
+                sb.append(" close");
+                break;
+            case BATCH:
+                if(sql != null) sb.append(" statement: ").append(sql);
+                int size = (batch == null) ? 0 : batch.size();
+                sb.append(" batch size: ").append(size);
+                if((batch != null) && (batch.retained() > 0)) batch.format(sb.append(" rows:"));
+                formatCounts(sb.append(" result: "));
+                if(size > 0) LatencyHistogram.millis(sb.append(" per row time: "), time / size);
+                break;
+            case REPEAT:
+                sb.append(" repeated statement: ").append(sql);
+                sb.append(" count: ").append(rows);
+                if(site != null) sb.append(" first call: ").append(site);
+                break;
+            case LEAK:
+                sb.append(" leak: ").append(operation).append(" was not closed");
+                if(site != null) sb.append(" acquired at:").append(site);
+                return sb;
+        }
+        LatencyHistogram.millis(sb.append(" time: "), time);
+        if(error != null) sb.append(" error: ").append(toError(error));
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = buffer.get();
+        sb.setLength(0);
+        String rv = format(sb).toString();
+        if(sb.capacity() > MAX_BUFFER) buffer.set(new StringBuilder(256));
+        return rv;
+    }
+    
+    private void formatCounts(StringBuilder sb) {
+        int length = (counts != null) ? counts.length : (largeCounts != null) ? largeCounts.length : -1;
+        if(length < 0) {
+            sb.append("null");
+            return;
+        }
+        long total = 0;
+        for(int i = 0; i < length; i++) {
+            long c = (counts != null) ? counts[i] : largeCounts[i];
+            if(c > 0) total += c;
+        }
+        sb.append(total).append(" [");
+        for(int i = 0; (i < length) && (i < MAX_COUNTS); i++) {
+            if(i > 0) sb.append(',');
+            sb.append((counts != null) ? counts[i] : largeCounts[i]);
+        }
+        if(length > MAX_COUNTS) sb.append(",...");
+        sb.append(']');
+    }
+    
+    private static String toError(Throwable t) {
+        if(t == null) return "";
+        while(t instanceof InvocationTargetException) {
+            t = t.getCause();
+            if(t == null) break;
+        }
+        if(t == null) return "InvocationTargetException";
+        return t.toString();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides if event should be logged before it is created. Events 
+ * can be sampled (only given fraction is logged) and rate limited 
+ * globally and per sql fingerprint (see SqlFingerprint). Rate limits 
+ * are lock free token buckets which allows bursts of one second. 
+ * Event suppressed by statement limit doesn't consume global limit.
+ * Suppressed events are counted and summary can be logged periodically.
+ * @author antons
+ */
+public class LogLimiter implements AutoCloseable {
+
+    private static final int MAX_STATEMENTS = 1000;
+
+    private volatile double sampleRate = 1;
+    private volatile Bucket global = null;
+    private volatile FingerprintMap<Bucket> buckets = null;
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+    private Timer timer;
+
+    public static LogLimiter instance() { return new LogLimiter(); }
+
+    /**
+     * Fraction of events to be logged. (default 1 - all events)
+     * @param rate value from 0 to 1
+     * @return this
+     */
+    public LogLimiter sample(double rate) {
+        sampleRate = Math.max(0, Math.min(1, rate));
+        return this;
+    }
+
+    /**
+     * Max number of events logged per second. (default 0 - unlimited)
+     * @param perSecond
+     * @return this
+     */
+    public LogLimiter rateLimit(int perSecond) {
+        global = (perSecond > 0) ? new Bucket(perSecond) : null;
+        return this;
+    }
+
+    /**
+     * Max number of events logged per second for one sql 
+     * fingerprint. (default 0 - unlimited)
+     * @param perSecond
+     * @return this
+     */
+    public LogLimiter statementRateLimit(int perSecond) {
+        buckets = (perSecond > 0) 
+            ? FingerprintMap.instance(MAX_STATEMENTS, key -> new Bucket(perSecond), new Bucket(perSecond))
+            : null;
+        return this;
+    }
+
+    /**
+     * Checks if event should be logged.
+     * @param sql statement of event or null
+     * @return false if event is suppressed
+     */
+    public boolean admit(String sql) {
+        if((sampleRate < 1) && (ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            sampled.increment();
+            return false;
+        }
+        Bucket b = global;
+        if((b != null) && !b.acquire()) {
+            limited.increment();
+            return false;
+        }
+        FingerprintMap<Bucket> map = buckets;
+        if((map != null) && (sql != null) && !map.get(sql).acquire()) {
+            if(b != null) b.refund();
+            limited.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Number of events suppressed by sampling.
+     * @return count
+     */
+    public long sampled() { return sampled.sum(); }
+    
+    /**
+     * Number of events suppressed by rate limits.
+     * @return count
+     */
+    public long limited() { return limited.sum(); }
+
+    /**
+     * Summary of suppressed events since last summary. 
+     * @return summary or null if no event was suppressed
+     */
+    public String summary() {
+        long s = sampled.sumThenReset();
+        long l = limited.sumThenReset();
+        if((s + l) == 0) return null;
+        StringBuilder sb = new StringBuilder();
+        sb.append("jdbc log suppressed: ").append(s + l);
+        sb.append(" (sampled: ").append(s);
+        sb.append(" rate limited: ").append(l).append(')');
+        return sb.toString();
+    }
+
+    /**
+     * Logs summary of suppressed events periodically from background 
+     * thread. Summary is logged only if some event was suppressed.
+     * @param config configuration with consumer
+     * @param periodMillis summary period
+     * @return this
+     */
+    public synchronized LogLimiter schedule(LogConfig config, long periodMillis) {
+        if(timer == null) timer = new Timer("jdbc-log-limiter", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    if(!config.consumerStatus().isConsumerOn()) return;
+                    String summary = summary();
+                    if(summary != null) config.consumer().consume(summary);
+                } catch(RuntimeException e) {
+                    // failed summary must not stop timer
+                }
+            }
+        }, periodMillis, periodMillis);
+        return this;
+    }
+
+    /**
+     * Stops scheduled summaries.
+     */
+    @Override
+    public synchronized void close() {
+        if(timer != null) timer.cancel();
+        timer = null;
+    }
+
+    /**
+     * Token bucket implemented as generic cell rate algorithm. 
+     * Only one timestamp is updated by CAS for each token.
+     */
+    private static class Bucket {
+        private final long interval;
+        private final long burst;
+        private final AtomicLong tat = new AtomicLong(System.nanoTime());
+
+        private Bucket(int perSecond) {
+            this.interval = Math.max(1, 1000000000L / perSecond);
+            this.burst = 1000000000L;
+        }
+
+        private boolean acquire() {
+            long now = System.nanoTime();
+            while(true) {
+                long t = tat.get();
+                long next = ((t - now < 0) ? now : t) + interval;
+                if(next - now > burst) return false;
+                if(tat.compareAndSet(t, next)) return true;
+            }
+        }
+
+        /**
+         * Returns token acquired for event which was suppressed 
+         * by other bucket.
+         */
+        private void refund() {
+            tat.addAndGet(-interval);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.Arrays;
+
+/**
+ * Parameters of prepared statement. Values are stored in reusable 
+ * index addressed arrays (primitive values without boxing, other 
+ * values as references) and they are converted to text only when 
+ * log message is formatted.
+ * @author antons
+ */
+public class Params {
+
+    private static final byte UNSET = 0;
+    private static final byte OBJECT = 1;
+    private static final byte NULL = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte BYTE = 4;
+    private static final byte SHORT = 5;
+    private static final byte INT = 6;
+    private static final byte LONG = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+
+    private byte[] kinds;
+    private long[] primitives;
+    private Object[] objects;
+    private int size = 0;
+
+    public Params() { this(8); }
+    private Params(int capacity) { 
+        kinds = new byte[capacity];
+        primitives = new long[capacity];
+        objects = new Object[capacity];
+    }
+    public static Params instance() { return new Params(); }
+
+    private int slot(int index, byte kind) {
+        if(index > kinds.length) {
+            int capacity = Math.max(index, kinds.length * 2);
+            kinds = Arrays.copyOf(kinds, capacity);
+            primitives = Arrays.copyOf(primitives, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+        }
+        if(index > size) size = index;
+        int i = index - 1;
+        kinds[i] = kind;
+        objects[i] = null;
+        return i;
+    }
+
+    /**
+     * Sets value of parameter.
+     * @param index parameter index (starting from 1)
+     * @param value parameter value
+     */
+    public void set(int index, Object value) {
+        if(index < 1) return;
+        if(value == null) {
+            slot(index, NULL);
+        } else {
+            objects[slot(index, OBJECT)] = value;
+        }
+    }
+    public void set(int index, boolean value) { if(index > 0) primitives[slot(index, BOOLEAN)] = value ? 1 : 0; }
+    public void set(int index, byte value) { if(index > 0) primitives[slot(index, BYTE)] = value; }
+    public void set(int index, short value) { if(index > 0) primitives[slot(index, SHORT)] = value; }
+    public void set(int index, int value) { if(index > 0) primitives[slot(index, INT)] = value; }
+    public void set(int index, long value) { if(index > 0) primitives[slot(index, LONG)] = value; }
+    public void set(int index, float value) { if(index > 0) primitives[slot(index, FLOAT)] = Float.floatToRawIntBits(value); }
+    public void set(int index, double value) { if(index > 0) primitives[slot(index, DOUBLE)] = Double.doubleToRawLongBits(value); }
+
+    /**
+     * Value of parameter. (Primitive values are boxed.)
+     * @param index parameter index (starting from 1)
+     * @return value or null if parameter is null or not set
+     */
+    public Object get(int index) {
+        if((index < 1) || (index > size)) return null;
+        int i = index - 1;
+        long p = primitives[i];
+        switch(kinds[i]) {
+            case OBJECT: return objects[i];
+            case BOOLEAN: return p != 0;
+            case BYTE: return (byte)p;
+            case SHORT: return (short)p;
+            case INT: return (int)p;
+            case LONG: return p;
+            case FLOAT: return Float.intBitsToFloat((int)p);
+            case DOUBLE: return Double.longBitsToDouble(p);
+            default: return null;
+        }
+    }
+
+    /**
+     * Highest index of set parameter.
+     * @return size
+     */
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * Removes all values. Arrays are kept for next use.
+     */
+    public void clear() {
+        Arrays.fill(kinds, 0, size, UNSET);
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Snapshot of current values.
+     * @return new instance with same values
+     */
+    public Params copy() {
+        Params p = new Params(Math.max(1, size));
+        System.arraycopy(kinds, 0, p.kinds, 0, size);
+        System.arraycopy(primitives, 0, p.primitives, 0, size);
+        System.arraycopy(objects, 0, p.objects, 0, size);
+        p.size = size;
+        return p;
+    }
+
+    /**
+     * Appends parameters in form ' ?1:value ?2:value'
+     * @param sb target builder
+     * @return sb
+     */
+    public StringBuilder format(StringBuilder sb) {
+        for(int i = 0; i < size; i++) {
+            byte kind = kinds[i];
+            if(kind == UNSET) continue;
+            sb.append(" ?").append(i + 1).append(':');
+            long p = primitives[i];
+            switch(kind) {
+                case OBJECT: sb.append(objects[i]); break;
+                case NULL: sb.append("null"); break;
+                case BOOLEAN: sb.append(p != 0); break;
+                case BYTE: 
+                case SHORT: 
+                case INT: 
+                case LONG: sb.append(p); break;
+                case FLOAT: sb.append(Float.intBitsToFloat((int)p)); break;
+                case DOUBLE: sb.append(Double.longBitsToDouble(p)); break;
+            }
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return format(new StringBuilder()).toString();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Detects the same statement (sql fingerprint) executed many times 
+ * in one transaction or connection lifetime (typical N+1 problem). 
+ * When statement is executed more than threshold times its next 
+ * executions should not be logged one by one, but one aggregated 
+ * REPEAT event with count, total time and call site is logged when 
+ * transaction finishes.
+ * 
+ * Instance is not thread safe. It is used by one connection the same 
+ * way as connection itself.
+ * @author antons
+ */
+public class RepeatDetector {
+
+    private static final int MAX_STATEMENTS = 256;
+
+    private final int threshold;
+    private final Map<String, Repeat> sqls = new HashMap<>();
+    private final Map<String, Repeat> shapes = new HashMap<>();
+
+    public RepeatDetector(int threshold) {
+        this.threshold = Math.max(1, threshold);
+    }
+    public static RepeatDetector instance(int threshold) { return new RepeatDetector(threshold); }
+
+    /**
+     * Records statement execution. Stack of first repeated execution 
+     * is captured (without resolving stack frames) and call site is 
+     * resolved from it only when REPEAT event is emitted. Statements 
+     * executed only once don't pay for stack capture.
+     * @param sql executed sql
+     * @param nanos execution time
+     * @return true if statement was executed more than threshold times
+     */
+    public boolean execute(String sql, long nanos) {
+        if(sql == null) return false;
+        Repeat repeat = sqls.get(sql);
+        if(repeat == null) {
+            if(sqls.size() >= MAX_STATEMENTS * 4) return false;
+            String fingerprint = SqlFingerprint.of(sql);
+            repeat = shapes.get(fingerprint);
+            if(repeat == null) {
+                if(shapes.size() >= MAX_STATEMENTS) return false;
+                repeat = new Repeat(fingerprint);
+                shapes.put(fingerprint, repeat);
+            }
+            sqls.put(sql, repeat);
+        }
+        repeat.count++;
+        repeat.time += nanos;
+        if(repeat.count == 2) repeat.origin = new Throwable();
+        return repeat.count > threshold;
+    }
+
+    /**
+     * Emits REPEAT events for statements executed more than 
+     * threshold times and starts new transaction.
+     * @param config target configuration
+     * @param connection connection identity
+     */
+    public void flush(LogConfig config, long connection) {
+        for(Repeat repeat : shapes.values()) {
+            if(repeat.count > threshold) {
+                config.emit(LogEvent.instance(LogEvent.Type.REPEAT, connection, 0)
+                    .node(config.node())
+                    .sql(repeat.fingerprint)
+                    .rows(repeat.count)
+                    .time(repeat.time)
+                    .site(callSite(repeat.origin)));
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Starts new transaction without emitting events.
+     */
+    public void reset() {
+        for(Repeat repeat : shapes.values()) {
+            repeat.count = 0;
+            repeat.time = 0;
+            repeat.origin = null;
+        }
+    }
+
+    private static String callSite(Throwable origin) {
+        if(origin == null) return null;
+        for(StackTraceElement element : origin.getStackTrace()) {
+            String name = element.getClassName();
+            if(name.startsWith("sk.antons.jdbc.")
+                || name.startsWith("java.")
+                || name.startsWith("javax.")
+                || name.startsWith("jdk.")
+                || name.startsWith("sun.")
+                || name.startsWith("com.sun.")) continue;
+            return element.toString();
+        }
+        return null;
+    }
+
+    private static class Repeat {
+        private final String fingerprint;
+        private long count;
+        private long time;
+        private Throwable origin;
+
+        private Repeat(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
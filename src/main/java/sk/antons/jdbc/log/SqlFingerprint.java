@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+/**
+ * Normalizes sql text to fingerprint, so executions of the same 
+ * statement with different literals can be aggregated.
+ * <ul>
+ * <li>string and numeric literals are replaced by ?</li>
+ * <li>lists of placeholders (like IN lists) are collapsed to single ?</li>
+ * <li>comments are removed and whitespaces are collapsed</li>
+ * <li>text outside of quoted identifiers is converted to lower case</li>
+ * </ul>
+ * <pre>
+ *   select * from t where id in (1, 2, 3) and name = 'x'
+ *   select * from t where id in (?) and name = ?
+ * </pre>
+ * @author antons
+ */
+public class SqlFingerprint {
+
+    private SqlFingerprint() {}
+
+    /**
+     * Fingerprint of given sql.
+     * @param sql sql text
+     * @return fingerprint or null if sql is null
+     */
+    public static String of(String sql) {
+        if(sql == null) return null;
+        int len = sql.length();
+        StringBuilder sb = new StringBuilder(len);
+        int i = 0;
+        while(i < len) {
+            char c = sql.charAt(i);
+            if(Character.isWhitespace(c)) {
+                space(sb);
+                i++;
+            } else if((c == '-') && (i + 1 < len) && (sql.charAt(i + 1) == '-')) {
+                int end = sql.indexOf('\n', i);
+                i = (end < 0) ? len : end;
+                space(sb);
+            } else if((c == '/') && (i + 1 < len) && (sql.charAt(i + 1) == '*')) {
+                int end = sql.indexOf("*/", i + 2);
+                i = (end < 0) ? len : end + 2;
+                space(sb);
+            } else if(c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+                placeholder(sb);
+            } else if((c == '"') || (c == '`')) {
+                int end = skipQuoted(sql, i, c);
+                sb.append(sql, i, end);
+                i = end;
+            } else if(Character.isDigit(c) && !identifierEnd(sb)) {
+                i++;
+                while((i < len) && (Character.isLetterOrDigit(sql.charAt(i)) || (sql.charAt(i) == '.'))) i++;
+                placeholder(sb);
+            } else if(c == '?') {
+                placeholder(sb);
+                i++;
+            } else {
+                sb.append(Character.toLowerCase(c));
+                i++;
+            }
+        }
+        int end = sb.length();
+        while((end > 0) && (sb.charAt(end - 1) == ' ')) end--;
+        sb.setLength(end);
+        return sb.toString();
+    }
+
+    private static void space(StringBuilder sb) {
+        int len = sb.length();
+        if((len > 0) && (sb.charAt(len - 1) != ' ')) sb.append(' ');
+    }
+
+    private static int skipQuoted(String sql, int i, char quote) {
+        int len = sql.length();
+        i++;
+        while(i < len) {
+            if(sql.charAt(i) == quote) {
+                if((i + 1 < len) && (sql.charAt(i + 1) == quote)) i += 2;
+                else return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return len;
+    }
+
+    private static boolean identifierEnd(StringBuilder sb) {
+        int len = sb.length();
+        if(len == 0) return false;
+        char c = sb.charAt(len - 1);
+        return Character.isLetterOrDigit(c) || (c == '_') || (c == '$') || (c == '"') || (c == '`');
+    }
+
+    /**
+     * Appends ? but when it continues list of placeholders 
+     * (? , ?) whole list is collapsed to single ?.
+     */
+    private static void placeholder(StringBuilder sb) {
+        int pos = sb.length() - 1;
+        while((pos >= 0) && (sb.charAt(pos) == ' ')) pos--;
+        if((pos >= 0) && (sb.charAt(pos) == ',')) {
+            int prev = pos - 1;
+            while((prev >= 0) && (sb.charAt(prev) == ' ')) prev--;
+            if((prev >= 0) && (sb.charAt(prev) == '?')) {
+                sb.setLength(prev + 1);
+                return;
+            }
+        }
+        // unary minus of numeric literal
+        if((pos >= 0) && (sb.charAt(pos) == '-') && (pos == sb.length() - 1)) {
+            int prev = pos - 1;
+            while((prev >= 0) && (sb.charAt(prev) == ' ')) prev--;
+            if((prev < 0) || "(,=<>+-*/".indexOf(sb.charAt(prev)) >= 0) {
+                sb.setLength(pos);
+                placeholder(sb);
+                return;
+            }
+        }
+        sb.append('?');
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated statistics of executed statements. Statements are grouped 
+ * by sql fingerprint (see SqlFingerprint) and for each fingerprint 
+ * count, time, rows and errors are collected with striped counters. 
+ * Number of fingerprints is bounded, statements over limit are 
+ * aggregated to one 'other' entry.
+ * <pre>
+ *   LogConfig config = LogConfig.instance(...).stats(1000);
+ *   config.stats().schedule(config.consumer(), 10, 60000);
+ * </pre>
+ * @author antons
+ */
+public class StatementStats implements AutoCloseable {
+
+    public static final String OTHER = "(other)";
+
+    private final FingerprintMap<Entry> entries;
+    private Timer timer;
+
+    /**
+     * New instance
+     * @param maxStatements max number of collected fingerprints
+     */
+    public StatementStats(int maxStatements) {
+        this.entries = FingerprintMap.instance(maxStatements, Entry::new, new Entry(OTHER));
+    }
+
+    public static StatementStats instance(int maxStatements) { return new StatementStats(maxStatements); }
+
+    /**
+     * Records one statement execution.
+     * @param sql executed sql
+     * @param nanos execution time
+     * @param rows affected rows
+     * @param fail true if execution failed
+     */
+    public void execute(String sql, long nanos, long rows, boolean fail) {
+        Entry entry = entries.get(sql);
+        if(entry == null) return;
+        entry.count.increment();
+        entry.time.add(nanos);
+        if(rows > 0) entry.rows.add(rows);
+        if(fail) entry.errors.increment();
+        long m = entry.max.get();
+        while(nanos > m) {
+            if(entry.max.compareAndSet(m, nanos)) break;
+            m = entry.max.get();
+        }
+    }
+
+    /**
+     * Records rows read from result set of statement.
+     * @param sql executed sql
+     * @param rows number of rows
+     */
+    public void rows(String sql, long rows) {
+        if(rows <= 0) return;
+        Entry entry = entries.get(sql);
+        if(entry != null) entry.rows.add(rows);
+    }
+
+    /**
+     * Collected entries sorted by total time.
+     * @param n max number of entries
+     * @return top n entries
+     */
+    public List<Entry> top(int n) {
+        List<Entry> list = new ArrayList<>(entries.values());
+        if(entries.other().count() > 0) list.add(entries.other());
+        // entries are updated concurrently, so they are sorted by snapshot
+        // of total time to keep comparator consistent
+        long[] times = new long[list.size()];
+        Integer[] order = new Integer[times.length];
+        for(int i = 0; i < times.length; i++) {
+            times[i] = list.get(i).totalTime();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(times[b], times[a]));
+        List<Entry> top = new ArrayList<>(Math.min(n, order.length));
+        for(int i = 0; i < order.length && i < n; i++) {
+            top.add(list.get(order[i]));
+        }
+        return top;
+    }
+
+    /**
+     * Text report of top n statements by total time.
+     * @param n max number of statements
+     * @return report
+     */
+    public String report(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("jdbc statements top ").append(n).append(" by total time (ms)");
+        for(Entry entry : top(n)) {
+            sb.append("\n  ").append(entry);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Sends report of top n statements to consumer.
+     * @param consumer report consumer
+     * @param n max number of statements
+     */
+    public void report(Consumer consumer, int n) {
+        consumer.consume(report(n));
+    }
+
+    /**
+     * Sends report of top n statements to consumer periodically 
+     * from background thread.
+     * @param consumer report consumer
+     * @param n max number of statements
+     * @param periodMillis report period
+     * @return this
+     */
+    public synchronized StatementStats schedule(Consumer consumer, int n, long periodMillis) {
+        if(timer == null) timer = new Timer("jdbc-log-stats", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    report(consumer, n);
+                } catch(RuntimeException e) {
+                    // failed report must not stop timer
+                }
+            }
+        }, periodMillis, periodMillis);
+        return this;
+    }
+
+    /**
+     * Clears all collected statistics.
+     */
+    public void reset() {
+        entries.clear();
+        entries.other().reset();
+    }
+
+    /**
+     * Stops scheduled reports.
+     */
+    @Override
+    public synchronized void close() {
+        if(timer != null) timer.cancel();
+        timer = null;
+    }
+
+    /**
+     * Statistics of one statement fingerprint.
+     */
+    public static class Entry {
+        private final String fingerprint;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder time = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        public String fingerprint() { return fingerprint; }
+        public long count() { return count.sum(); }
+        public long totalTime() { return time.sum(); }
+        public long maxTime() { return max.get(); }
+        public long rows() { return rows.sum(); }
+        public long errors() { return errors.sum(); }
+        public long avgTime() {
+            long c = count();
+            return (c == 0) ? 0 : totalTime() / c;
+        }
+
+        private void reset() {
+            count.reset();
+            time.reset();
+            rows.reset();
+            errors.reset();
+            max.set(0);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("count: ").append(count());
+            LatencyHistogram.millis(sb.append(" total: "), totalTime());
+            LatencyHistogram.millis(sb.append(" avg: "), avgTime());
+            LatencyHistogram.millis(sb.append(" max: "), maxTime());
+            sb.append(" rows: ").append(rows());
+            sb.append(" errors: ").append(errors());
+            sb.append(" sql: ").append(fingerprint);
+            return sb.toString();
+        }
+    }
+}
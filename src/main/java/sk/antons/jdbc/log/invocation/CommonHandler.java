@@ -15,72 +15,198 @@
  */
 package sk.antons.jdbc.log.invocation;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import sk.antons.jdbc.log.Batch;
+import sk.antons.jdbc.log.FetchSizeAdvisor;
+import sk.antons.jdbc.log.FlightRecorder;
+import sk.antons.jdbc.log.JdbcMetrics;
+import sk.antons.jdbc.log.LeakDetector;
 import sk.antons.jdbc.log.LogConfig;
+import sk.antons.jdbc.log.LogEvent;
+import sk.antons.jdbc.log.RepeatDetector;
+import sk.antons.jdbc.log.StatementStats;
 
 /**
- * Implementation class
+ * Implementation class. Handlers are used directly by Log* wrapper 
+ * classes.
  * @author antons
  */
-public abstract class CommonHandler implements InvocationHandler {
+public abstract class CommonHandler {
 
-    protected Object wrapped = null;
     protected LogConfig config = null;
-    protected int connidentity;
-    protected int stmidentity;
+    protected long connidentity;
+    protected long stmidentity;
     protected long invocationTime;
     protected Throwable error;
+    protected Batch batch;
+    protected ConnectionHandler connection;
+    protected boolean admitted = true;
+    protected boolean repeated = false;
+    protected LeakDetector.Tracked tracked;
     
-    public CommonHandler(Object wrapped, LogConfig config
-            , int connidentity, int stmidentity) {
-        this.wrapped = wrapped;
+    public CommonHandler(LogConfig config, long connidentity, long stmidentity) {
         this.config = config;
         this.connidentity = connidentity;
         this.stmidentity = stmidentity;
     }
     
-    @Override
-    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        preInvoke(method, args);
-        Object o = null;
-        error = null;
-        long starttime = System.currentTimeMillis();
+    public LogConfig config() { return config; }
+    public long connectionIdentity() { return connidentity; }
+    public long statementIdentity() { return stmidentity; }
+    /**
+     * Handler of connection which created this handler.
+     * @return handler or null if handler was created directly
+     */
+    public ConnectionHandler connection() { return connection; }
+
+    /**
+     * Start time of intercepted invocation. Result should be 
+     * passed back to handler when invocation finish. Time is not 
+     * measured if consumer is off and metrics are not collected.
+     * @return start time (System.nanoTime()) or 0
+     */
+    public long start() { return isTimed() ? System.nanoTime() : 0; }
+
+    protected void finish(long starttime, Throwable error) {
+        this.invocationTime = (starttime == 0) ? 0 : System.nanoTime() - starttime;
+        this.error = error;
+    }
+
+    protected boolean isOn() { return config.consumerStatus().isConsumerOn(); }
+    protected boolean isTimed() { return config.collects() || isOn(); }
+    protected JdbcMetrics metrics() { return config.metrics(); }
+    protected StatementStats stats() { return config.stats(); }
+
+    /**
+     * Records finished statement execution to metrics and statistics.
+     * @param sql executed statement
+     * @param rows affected rows
+     */
+    protected void executed(String sql, long rows) {
+        if(metrics() != null) metrics().execute().record(invocationTime);
+        if(stats() != null) stats().execute(sql, invocationTime, rows, error != null);
+        if(connection != null) connection.statement(invocationTime, rows);
+        RepeatDetector repeats = (connection == null) ? null : connection.repeats();
+        repeated = (repeats != null) && isOn() && repeats.execute(sql, invocationTime);
+    }
+
+    /**
+     * Registers wrapper to leak detector (if leak detection is enabled).
+     * @param wrapper wrapper which uses this handler
+     * @param parent handler of connection (statement) which created wrapper or null
+     */
+    public void track(Object wrapper, CommonHandler parent) {
+        LeakDetector detector = config.leakDetector();
+        if(detector == null) return;
+        tracked = detector.track(wrapper, connidentity, stmidentity, (parent == null) ? null : parent.tracked);
+    }
+
+    /**
+     * Marks wrapper as closed for leak detector.
+     */
+    protected void untrack() {
+        if(tracked != null) tracked.close();
+    }
+
+    /**
+     * Sets fetch size advised for given sql (if adaptive fetch size 
+     * is enabled and sql was already observed).
+     * @param stm statement to be executed
+     * @param sql sql of statement
+     */
+    protected void adviseFetchSize(Statement stm, String sql) {
+        FetchSizeAdvisor advisor = config.fetchSizeAdvisor();
+        if(advisor == null) return;
+        int size = advisor.fetchSize(sql);
+        if(size <= 0) return;
         try {
-            o = method.invoke(wrapped, args);
-        } catch(Throwable e) {
-            error = e;
+            stm.setFetchSize(size);
+        } catch(SQLException e) {
+            // fetch size is only hint for driver
         }
-        long endtime = System.currentTimeMillis();
-        invocationTime = endtime - starttime;
-        o = postInvoke(method, args, o);
-        if(error != null) throw error;
-        return o;
     }
 
-    protected abstract void preInvoke(Method method, Object[] args);
-    protected abstract Object postInvoke(Method method, Object[] args, Object o);
+    /**
+     * Sum of batch update counts (unknown counts are ignored).
+     * @param counts update counts
+     * @return sum
+     */
+    protected static long rows(int[] counts) {
+        long sum = 0;
+        if(counts != null) for(int count : counts) if(count > 0) sum += count;
+        return sum;
+    }
 
-    protected void consumerPrefix(StringBuilder sb) {
-        sb.append("jdbc");
-        if((connidentity > 0) && (stmidentity > 0)) sb.append(" [").append(connidentity).append("][").append(stmidentity).append(']');
-        else if(connidentity > 0) sb.append(" [").append(connidentity).append(']');
+    protected static long rows(long[] counts) {
+        long sum = 0;
+        if(counts != null) for(long count : counts) if(count > 0) sum += count;
+        return sum;
     }
-    protected void consumerPostfix(StringBuilder sb) {
-        sb.append(" time: ").append(invocationTime);
-        if(error != null) sb.append(" error: ").append(toError(error));
+
+    /**
+     * New event for this handler with invocation time and error 
+     * of last finished invocation.
+     * @param type event type
+     * @return event
+     */
+    protected LogEvent event(LogEvent.Type type) {
+        return LogEvent.instance(type, connidentity, stmidentity)
+            .node(config.node())
+            .time(invocationTime)
+            .error(error);
     }
 
-    protected boolean isFail() { return error != null; }
-    
-    protected String toError(Throwable t) {
-        if(t == null) return "";
-        while(t instanceof InvocationTargetException) {
-            t = t.getCause();
-            if(t == null) break;
+    /**
+     * Current batch. New batch is created if necessary.
+     * @return batch
+     */
+    protected Batch batch() {
+        if(batch == null) batch = Batch.instance(config.batchFirst(), config.batchSamples());
+        return batch;
+    }
+
+    /**
+     * Update counts of failed batch.
+     * @param error batch error
+     * @return counts or null
+     */
+    protected static int[] batchCounts(Throwable error) {
+        if(error instanceof BatchUpdateException) return ((BatchUpdateException)error).getUpdateCounts();
+        return null;
+    }
+
+    /**
+     * Logs finished event. If slow threshold is defined only slow 
+     * or failed events are emitted. Flight recorder of connection 
+     * (if any) is used only with slow threshold. It keeps events which 
+     * were not emitted and dumps them before slow or failed event.
+     * @param event event to be logged
+     */
+    protected void log(LogEvent event) {
+        long threshold = config.slowThreshold();
+        boolean slow = (threshold > 0) 
+            && ((event.time() >= threshold) || (event.allRowsTime() >= threshold));
+        boolean emit = (threshold <= 0) || slow || event.isFail();
+        FlightRecorder recorder = (connection == null) ? null : connection.recorder();
+        if((recorder != null) && (threshold > 0)) {
+            if(emit) recorder.dump(config);
+            else recorder.add(event);
         }
-        if(t == null) return "InvocationTargetException";
-        return t.toString();
+        if(emit) config.emit(event);
+    }
+
+    /**
+     * Checks sampling, rate limits and repeated statements before 
+     * event is created. Failed invocations are always admitted.
+     * @param sql statement of event or null
+     * @return true if event should be logged
+     */
+    protected boolean admit(String sql) {
+        admitted = (error != null) || (!repeated && config.admit(sql));
+        return admitted;
     }
+
+    protected boolean isFail() { return error != null; }
 }
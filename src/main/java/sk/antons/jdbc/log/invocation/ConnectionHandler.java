@@ -16,11 +16,14 @@
 package sk.antons.jdbc.log.invocation;
 
 import sk.antons.jdbc.log.JdbcWrapper;
-import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
+import sk.antons.jdbc.log.FlightRecorder;
 import sk.antons.jdbc.log.LogConfig;
+import sk.antons.jdbc.log.LogEvent;
+import sk.antons.jdbc.log.RepeatDetector;
 
 /**
  * Implementation class
@@ -28,44 +31,198 @@ import sk.antons.jdbc.log.LogConfig;
  */
 public class ConnectionHandler extends CommonHandler {
 
+
     Connection conn = null;
+    FlightRecorder recorder = null;
+    RepeatDetector repeats = null;
+    StatementCache statements = null;
+    private boolean autoCommit = true;
+    private long spanStart;
+    private long spanStatements;
+    private long spanTime;
+    private long spanRows;
     
     public ConnectionHandler(Connection conn, LogConfig config) {
-        super(conn, config, Identities.nextConnection(), 0);
+        super(config, Identities.nextConnection(), 0);
         this.conn = conn;
+        this.connection = this;
+        if(config.flightRecorder() > 0) recorder = FlightRecorder.instance(config.flightRecorder());
+        if(config.repeatThreshold() > 0) repeats = RepeatDetector.instance(config.repeatThreshold());
+        if(config.statementCache() > 0) statements = StatementCache.instance(config.statementCache(), config.statementCacheStats());
+        try {
+            autoCommit = conn.getAutoCommit();
+        } catch(SQLException | RuntimeException e) {
+            // default mode of new connection
+        }
     }
 
     public static ConnectionHandler instance(Connection conn, LogConfig config) {
         return new ConnectionHandler(conn, config);
     }
+
+    public Statement createStatement(Statement stm) {
+        if((stm != null) && wrapStatement()) {
+            return JdbcWrapper.wrap(stm, this);
+        }
+        return stm;
+    }
     
+    /**
+     * Checks if prepared statements are cached.
+     * @return true if statement cache is enabled
+     */
+    public boolean isCaching() { return statements != null; }
+
+    /**
+     * Borrows prepared statement from cache. Fetch size is advised 
+     * again as for new statement.
+     * @param key statement key (see StatementCache.key())
+     * @return cached statement or null
+     */
+    public PreparedStatement cachedStatement(String key) {
+        if((statements == null) || (key == null)) return null;
+        LogPreparedStatement ps = statements.get(key);
+        if(ps != null) {
+            ps.handler.released = false;
+            ps.handler.track(ps, this);
+            adviseFetchSize(ps, ps.handler.statement);
+        }
+        return ps;
+    }
+
+    /**
+     * Wraps new prepared statement. Statement will be returned 
+     * to cache when it is closed.
+     * @param stm new statement
+     * @param statement sql of statement
+     * @param key cache key or null if statement should not be cached
+     * @return wrapped statement
+     */
+    public PreparedStatement prepareStatement(PreparedStatement stm, String statement, String key) {
+        PreparedStatement ps = prepareStatement(stm, statement);
+        if((key != null) && (ps instanceof LogPreparedStatement)) ((LogPreparedStatement)ps).handler.cacheKey = key;
+        return ps;
+    }
+
+    /**
+     * Returns closed statement to cache.
+     * @param ps statement
+     * @param key cache key
+     * @return false if statement was not cached and should be closed
+     */
+    boolean release(LogPreparedStatement ps, String key) {
+        return (statements != null) && statements.put(key, ps);
+    }
+
+    public PreparedStatement prepareStatement(PreparedStatement stm, String statement) {
+        if(stm != null) adviseFetchSize(stm, statement);
+        if((stm != null) && wrapStatement()) {
+            return JdbcWrapper.wrap(stm, statement, this);
+        }
+        return stm;
+    }
+    
+    /**
+     * Flight recorder of this connection.
+     * @return recorder or null if recording is not enabled
+     */
+    public FlightRecorder recorder() { return recorder; }
+
+    /**
+     * Repeated statements detector of this connection.
+     * @return detector or null if detection is not enabled
+     */
+    public RepeatDetector repeats() { return repeats; }
 
-    @Override
-    protected void preInvoke(Method method, Object[] args) {
+    private boolean wrapStatement() {
+        return config.collects() || (statements != null) || ((config.logStatement() || config.logTransaction()) && isOn());
     }
     
-    @Override
-    protected Object postInvoke(Method method, Object[] args, Object o) {
-        if(config.consumerStatus().isConsumerOn()) {
-            String name = method.getName();
-            if("createStatement".equals(name)) {
-                if(config.logStatement()) {
-                    o = JdbcWrapper.wrap((Statement)o, config, connidentity);
-                }
-            } else if("prepareStatement".equals(name)) {
-                if(config.logStatement()) {
-                    o = JdbcWrapper.wrap((PreparedStatement)o, (String)args[0], config, connidentity);
-                }
-            } else if("commit".equals(name) || "rollback".equals(name)){
-                StringBuilder sb = new StringBuilder();
-                consumerPrefix(sb);
-                sb.append(" ").append(name);
-                consumerPostfix(sb);
-                config.consumer().consume(sb.toString());
+    public void transaction(String name, long starttime, Throwable error) {
+        transaction(name, true, starttime, error);
+    }
+
+    /**
+     * Called after commit or rollback.
+     * @param name operation name
+     * @param end true if transaction ends (false for rollback to savepoint)
+     * @param starttime start of invocation
+     * @param error invocation error
+     */
+    public void transaction(String name, boolean end, long starttime, Throwable error) {
+        finish(starttime, error);
+        if(end) flushRepeats();
+        if(metrics() != null) metrics().transaction().record(invocationTime);
+        if(isOn() && config.logTransaction() && admit(null)) {
+            LogEvent event = event(LogEvent.Type.TRANSACTION).operation(name);
+            if(end && (spanStatements > 0)) {
+                event.statements(spanStatements)
+                    .dbTime(spanTime)
+                    .wallTime(System.nanoTime() - spanStart)
+                    .rows(spanRows);
             }
+            log(event);
         }
-        return o;
+        if(end) spanStatements = 0;
+    }
+
+    /**
+     * Called when statement of this connection is executed. First 
+     * statement after commit or rollback starts transaction span. 
+     * In auto commit mode each statement is own transaction, so no 
+     * span is collected.
+     * @param time execution time
+     * @param rows affected rows
+     */
+    public void statement(long time, long rows) {
+        if(autoCommit) return;
+        if(spanStatements == 0) {
+            spanStart = System.nanoTime() - time;
+            spanTime = 0;
+            spanRows = 0;
+        }
+        spanStatements++;
+        spanTime += time;
+        if(rows > 0) spanRows += rows;
+    }
+
+    /**
+     * Called when rows are read from result set of this connection.
+     * @param rows number of rows
+     */
+    public void rows(long rows) {
+        if((spanStatements > 0) && (rows > 0)) spanRows += rows;
+    }
+
+    /**
+     * Called after auto commit mode is changed. Transaction 
+     * span starts with next statement.
+     * @param autoCommit new mode
+     */
+    public void autoCommit(boolean autoCommit) {
+        this.autoCommit = autoCommit;
+        spanStatements = 0;
+    }
+
+    /**
+     * Called before connection is closed. Cached statements are closed.
+     */
+    public void beforeClose() {
+        if(statements != null) statements.close();
+    }
+
+    /**
+     * Called when connection is closed.
+     */
+    public void close() {
+        untrack();
+        flushRepeats();
+    }
+
+    private void flushRepeats() {
+        if(repeats == null) return;
+        if(isOn()) repeats.flush(config, connidentity);
+        else repeats.reset();
     }
-    
     
 }
@@ -15,14 +15,30 @@
  */
 package sk.antons.jdbc.log.invocation;
 
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Implementation class
+ * Implementation class. Lock free generator of 64bit identities.
  * @author antons
  */
 public class Identities {
-    private static int stmcounter = 1;
-    public static synchronized int nextStatement() { return stmcounter++; }
+    private static final AtomicLong stmcounter = new AtomicLong();
+    public static long nextStatement() { return stmcounter.incrementAndGet(); }
     
-    private static int conncounter = 1;
-    public static synchronized int nextConnection() { return conncounter++; }
+    private static final AtomicLong conncounter = new AtomicLong();
+    public static long nextConnection() { return conncounter.incrementAndGet(); }
+
+    /**
+     * Identity of this JVM (usually pid@hostname). It can be used as 
+     * node identity in LogConfig.
+     * @return jvm identity
+     */
+    public static String jvm() {
+        try {
+            return ManagementFactory.getRuntimeMXBean().getName();
+        } catch(Exception e) {
+            return Long.toHexString(System.nanoTime());
+        }
+    }
 }
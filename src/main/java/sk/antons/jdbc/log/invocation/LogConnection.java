@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log.invocation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import sk.antons.jdbc.wrap.ConnectionWrapper;
+
+/**
+ * Implementation class. Connection wrapper which calls ConnectionHandler
+ * directly (without reflection) for logged methods.
+ * @author antons
+ */
+public class LogConnection extends ConnectionWrapper {
+
+    protected ConnectionHandler handler;
+
+    public LogConnection(Connection conn, ConnectionHandler handler) {
+        super(conn);
+        this.handler = handler;
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return handler.createStatement(conn.createStatement());
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return handler.createStatement(conn.createStatement(resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return handler.createStatement(conn.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        String key = handler.isCaching() ? StatementCache.key(sql) : null;
+        PreparedStatement ps = handler.cachedStatement(key);
+        if(ps != null) return ps;
+        return handler.prepareStatement(conn.prepareStatement(sql), sql, key);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        String key = handler.isCaching() ? StatementCache.key(sql, resultSetType, resultSetConcurrency) : null;
+        PreparedStatement ps = handler.cachedStatement(key);
+        if(ps != null) return ps;
+        return handler.prepareStatement(conn.prepareStatement(sql, resultSetType, resultSetConcurrency), sql, key);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        String key = handler.isCaching() ? StatementCache.key(sql, resultSetType, resultSetConcurrency, resultSetHoldability) : null;
+        PreparedStatement ps = handler.cachedStatement(key);
+        if(ps != null) return ps;
+        return handler.prepareStatement(conn.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), sql, key);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = handler.isCaching() ? StatementCache.key(sql, autoGeneratedKeys) : null;
+        PreparedStatement ps = handler.cachedStatement(key);
+        if(ps != null) return ps;
+        return handler.prepareStatement(conn.prepareStatement(sql, autoGeneratedKeys), sql, key);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        String key = handler.isCaching() ? StatementCache.key(sql, columnIndexes) : null;
+        PreparedStatement ps = handler.cachedStatement(key);
+        if(ps != null) return ps;
+        return handler.prepareStatement(conn.prepareStatement(sql, columnIndexes), sql, key);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        String key = handler.isCaching() ? StatementCache.key(sql, columnNames) : null;
+        PreparedStatement ps = handler.cachedStatement(key);
+        if(ps != null) return ps;
+        return handler.prepareStatement(conn.prepareStatement(sql, columnNames), sql, key);
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        long starttime = handler.start();
+        try {
+            conn.commit();
+        } catch(SQLException | RuntimeException e) {
+            handler.transaction("commit", starttime, e);
+            throw e;
+        }
+        handler.transaction("commit", starttime, null);
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        long starttime = handler.start();
+        try {
+            conn.rollback();
+        } catch(SQLException | RuntimeException e) {
+            handler.transaction("rollback", starttime, e);
+            throw e;
+        }
+        handler.transaction("rollback", starttime, null);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        long starttime = handler.start();
+        try {
+            conn.rollback(savepoint);
+        } catch(SQLException | RuntimeException e) {
+            handler.transaction("rollback", false, starttime, e);
+            throw e;
+        }
+        handler.transaction("rollback", false, starttime, null);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        handler.beforeClose();
+        try {
+            conn.close();
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        conn.setAutoCommit(autoCommit);
+        handler.autoCommit(autoCommit);
+    }
+
+}
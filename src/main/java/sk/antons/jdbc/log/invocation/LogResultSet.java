@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log.invocation;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import sk.antons.jdbc.wrap.ResultSetWrapper;
+
+/**
+ * Implementation class. ResultSet wrapper which calls ResultSetHandler
+ * directly (without reflection) for logged methods. All getters are 
+ * plain delegations.
+ * @author antons
+ */
+public class LogResultSet extends ResultSetWrapper {
+
+    protected ResultSetHandler handler;
+
+    public LogResultSet(ResultSet rs, ResultSetHandler handler) {
+        super(rs);
+        this.handler = handler;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        handler.beforeNext();
+        try {
+            return rs.next();
+        } finally {
+            handler.afterNext();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        long starttime = handler.start();
+        try {
+            rs.close();
+        } catch(SQLException | RuntimeException e) {
+            handler.close(starttime, e);
+            throw e;
+        }
+        handler.close(starttime, null);
+    }
+
+}
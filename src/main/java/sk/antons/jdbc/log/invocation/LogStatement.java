@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log.invocation;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import sk.antons.jdbc.wrap.StatementWrapper;
+
+/**
+ * Implementation class. Statement wrapper which calls StatementHandler
+ * directly (without reflection) for logged methods.
+ * @author antons
+ */
+public class LogStatement extends StatementWrapper {
+
+    protected StatementHandler handler;
+
+    public LogStatement(Statement stm, StatementHandler handler) {
+        super(stm);
+        this.handler = handler;
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        handler.beforeQuery(sql);
+        long starttime = handler.start();
+        ResultSet rs = null;
+        try {
+            rs = stm.executeQuery(sql);
+        } catch(SQLException | RuntimeException e) {
+            handler.executeQuery(sql, null, starttime, e);
+            throw e;
+        }
+        return handler.executeQuery(sql, rs, starttime, null);
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        long starttime = handler.start();
+        int result = 0;
+        try {
+            result = stm.executeUpdate(sql);
+        } catch(SQLException | RuntimeException e) {
+            handler.executeUpdate(sql, 0, starttime, e);
+            throw e;
+        }
+        handler.executeUpdate(sql, result, starttime, null);
+        return result;
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long starttime = handler.start();
+        int result = 0;
+        try {
+            result = stm.executeUpdate(sql, autoGeneratedKeys);
+        } catch(SQLException | RuntimeException e) {
+            handler.executeUpdate(sql, 0, starttime, e);
+            throw e;
+        }
+        handler.executeUpdate(sql, result, starttime, null);
+        return result;
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long starttime = handler.start();
+        int result = 0;
+        try {
+            result = stm.executeUpdate(sql, columnIndexes);
+        } catch(SQLException | RuntimeException e) {
+            handler.executeUpdate(sql, 0, starttime, e);
+            throw e;
+        }
+        handler.executeUpdate(sql, result, starttime, null);
+        return result;
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        long starttime = handler.start();
+        int result = 0;
+        try {
+            result = stm.executeUpdate(sql, columnNames);
+        } catch(SQLException | RuntimeException e) {
+            handler.executeUpdate(sql, 0, starttime, e);
+            throw e;
+        }
+        handler.executeUpdate(sql, result, starttime, null);
+        return result;
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        stm.addBatch(sql);
+        handler.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        stm.clearBatch();
+        handler.clearBatch();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        long starttime = handler.start();
+        int[] counts = null;
+        try {
+            counts = stm.executeBatch();
+        } catch(SQLException | RuntimeException e) {
+            handler.executeBatch(null, starttime, e);
+            throw e;
+        }
+        handler.executeBatch(counts, starttime, null);
+        return counts;
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        long starttime = handler.start();
+        long[] counts = null;
+        try {
+            counts = stm.executeLargeBatch();
+        } catch(SQLException | RuntimeException e) {
+            handler.executeLargeBatch(null, starttime, e);
+            throw e;
+        }
+        handler.executeLargeBatch(counts, starttime, null);
+        return counts;
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        stm.setFetchSize(rows);
+        handler.fetchSize(rows);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            stm.close();
+        } finally {
+            handler.close();
+        }
+    }
+
+}
@@ -16,15 +16,13 @@
 package sk.antons.jdbc.log.invocation;
 
 import sk.antons.jdbc.log.JdbcWrapper;
-import java.lang.reflect.Method;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.sql.SQLException;
+import sk.antons.jdbc.log.Batch;
 import sk.antons.jdbc.log.LogConfig;
+import sk.antons.jdbc.log.LogEvent;
+import sk.antons.jdbc.log.Params;
 
 /**
  * Implementation class
@@ -32,78 +30,153 @@ import sk.antons.jdbc.log.LogConfig;
  */
 public class PreparedStatementHandler extends CommonHandler {
 
+
     PreparedStatement stm = null;
     String statement = null;
-    Map<Integer, String> params = new HashMap<>();
+    Params params = Params.instance();
+    String cacheKey = null;
+    boolean batchPending = false;
+    boolean released = false;
+    ResultSet resultSet = null;
     
-    public PreparedStatementHandler(PreparedStatement stm, String statement, LogConfig config, int connidentity) {
-        super(stm, config, connidentity, Identities.nextStatement());
+    public PreparedStatementHandler(PreparedStatement stm, String statement, LogConfig config, long connidentity) {
+        super(config, connidentity, Identities.nextStatement());
         this.stm = stm;
         this.statement = statement;
     }
 
-    public static PreparedStatementHandler instance(PreparedStatement stm, String statement, LogConfig config, int connidentity) {
+    public PreparedStatementHandler(PreparedStatement stm, String statement, ConnectionHandler connection) {
+        this(stm, statement, connection.config(), connection.connectionIdentity());
+        this.connection = connection;
+    }
+
+    public static PreparedStatementHandler instance(PreparedStatement stm, String statement, LogConfig config, long connidentity) {
         return new PreparedStatementHandler(stm, statement, config, connidentity);
     }
-    
 
-    @Override
-    protected void preInvoke(Method method, Object[] args) {
+    public static PreparedStatementHandler instance(PreparedStatement stm, String statement, ConnectionHandler connection) {
+        return new PreparedStatementHandler(stm, statement, connection);
     }
-    
-    @Override
-    protected Object postInvoke(Method method, Object[] args, Object o) {
-        if(config.consumerStatus().isConsumerOn()) {
-            String name = method.getName();
-            if("executeQuery".equals(name)) {
-                StringBuilder sb = new StringBuilder();
-                consumerPrefix(sb);
-                sb.append(" statement: ").append(statement);
-                sb.append(" params: ").append(params());
-                consumerPostfix(sb);
-                config.consumer().consume(sb.toString());
-                if(config.logResult() && (o != null)) {
-                    o = JdbcWrapper.wrap((ResultSet)o, config, connidentity, stmidentity);
-                }
-                params.clear();
-            } else if("executeUpdate".equals(name)){
-                StringBuilder sb = new StringBuilder();
-                consumerPrefix(sb);
-                sb.append(" statement: ").append(statement);
-                sb.append(" params: ").append(params());
-                sb.append(" result: ").append(o);
-                consumerPostfix(sb);
-                config.consumer().consume(sb.toString());
-                params.clear();
-            } else if(name.startsWith("set")){
-                addParam(method, args);
-            }
+
+    public ResultSet executeQuery(ResultSet rs, long starttime, Throwable error) {
+        finish(starttime, error);
+        executed(statement, 0);
+        admitted = isOn() && admit(statement);
+        if(admitted && config.logStatement()) {
+            log(event(LogEvent.Type.QUERY).sql(statement).params(params.copy()));
         }
-        return o;
-    }
-
-    private void addParam(Method method, Object[] args) {
-        if(method.getParameterTypes().length < 2) return;
-        if(method.getParameterTypes().length > 3) return;
-        Class c = method.getParameterTypes()[0];
-        if(! int.class.isAssignableFrom(c)) return;
-        Object value = args[1];
-        String svalue = "" + value;;
-        int key = (int)args[0];
-        params.put(key, svalue);
-    }
-
-    private String params() {
-        List<Integer> keys = new ArrayList<>();
-        keys.addAll(params.keySet());
-        Collections.sort(keys);
-        StringBuilder sb = new StringBuilder();
-        for(Integer key : keys) {
-            String value = params.get(key);
-            sb.append(" ?").append(key).append(':').append(value);
+        params.clear();
+        if((rs != null) && (config.collects() || ((config.logResult() || config.logTransaction()) && isOn()))) {
+            rs = JdbcWrapper.wrap(rs, this, statement);
         }
-        return sb.toString();
+        if(cacheKey != null) resultSet = rs;
+        return rs;
     }
     
+    public void executeUpdate(long result, long starttime, Throwable error) {
+        finish(starttime, error);
+        executed(statement, result);
+        if(isOn() && config.logStatement() && admit(statement)) {
+            log(event(LogEvent.Type.UPDATE).sql(statement).params(params.copy()).result(result));
+        }
+        params.clear();
+    }
+
+    public void addBatch() {
+        batchPending = true;
+        if(isOn() && config.logStatement()) {
+            Batch b = batch();
+            int slot = b.nextSlot();
+            b.add(slot, (slot < 0) ? null : params.copy());
+        }
+    }
+
+    public void clearBatch() {
+        batch = null;
+        batchPending = false;
+    }
+
+    public void executeBatch(int[] counts, long starttime, Throwable error) {
+        finish(starttime, error);
+        executed(statement, rows(counts));
+        if(isOn() && config.logStatement() && admit(statement)) {
+            if(counts == null) counts = batchCounts(error);
+            log(event(LogEvent.Type.BATCH).sql(statement).batch(batch).counts(counts));
+        }
+        batch = null;
+        batchPending = false;
+    }
+
+    public void executeLargeBatch(long[] counts, long starttime, Throwable error) {
+        finish(starttime, error);
+        executed(statement, rows(counts));
+        if(isOn() && config.logStatement() && admit(statement)) {
+            log(event(LogEvent.Type.BATCH).sql(statement).batch(batch).largeCounts(counts).counts((counts == null) ? batchCounts(error) : null));
+        }
+        batch = null;
+        batchPending = false;
+    }
+
+    public void param(int index, Object value) {
+        if(isOn()) params.set(index, value);
+    }
+    public void param(int index, boolean value) {
+        if(isOn()) params.set(index, value);
+    }
+    public void param(int index, byte value) {
+        if(isOn()) params.set(index, value);
+    }
+    public void param(int index, short value) {
+        if(isOn()) params.set(index, value);
+    }
+    public void param(int index, int value) {
+        if(isOn()) params.set(index, value);
+    }
+    public void param(int index, long value) {
+        if(isOn()) params.set(index, value);
+    }
+    public void param(int index, float value) {
+        if(isOn()) params.set(index, value);
+    }
+    public void param(int index, double value) {
+        if(isOn()) params.set(index, value);
+    }
+
+    /**
+     * Returns statement to connection statement cache on logical close. 
+     * Open result set, parameters and pending batch are cleared.
+     * @param ps wrapper of this handler
+     * @return true if statement was cached (it must not be closed)
+     */
+    public boolean release(LogPreparedStatement ps) {
+        if((cacheKey == null) || (connection == null)) return false;
+        try {
+            if((resultSet != null) && !resultSet.isClosed()) resultSet.close();
+            resultSet = null;
+            stm.clearParameters();
+            if(batchPending) stm.clearBatch();
+        } catch(SQLException | RuntimeException e) {
+            return false;
+        }
+        params.clear();
+        batch = null;
+        batchPending = false;
+        untrack();
+        released = connection.release(ps, cacheKey);
+        return released;
+    }
+
+    /**
+     * Checks if statement was logically closed and is held by statement cache.
+     * @return true if statement is in cache
+     */
+    public boolean isReleased() { return released; }
+
+    /**
+     * Called when statement is closed.
+     */
+    public void close() {
+        untrack();
+    }
     
 }
@@ -15,8 +15,8 @@
  */
 package sk.antons.jdbc.log.invocation;
 
-import java.lang.reflect.Method;
 import java.sql.ResultSet;
+import sk.antons.jdbc.log.LogEvent;
 import sk.antons.jdbc.log.LogConfig;
 
 /**
@@ -25,53 +25,72 @@ import sk.antons.jdbc.log.LogConfig;
  */
 public class ResultSetHandler extends CommonHandler {
 
+
     ResultSet rs = null;
+    String sql = null;
 
+    private boolean nextstarted;
+    private boolean nextfirst;
     private long nextstartTime;
     private long nextfirstTime;
     private long nextlastTime;
     private int count = -1;
     
-    public ResultSetHandler(ResultSet rs, LogConfig config, int connidentity, int stmidentity) {
-        super(rs, config, connidentity, stmidentity);
+    public ResultSetHandler(ResultSet rs, LogConfig config, long connidentity, long stmidentity) {
+        super(config, connidentity, stmidentity);
         this.rs = rs;
     }
 
-    public static ResultSetHandler instance(ResultSet rs, LogConfig config, int connidentity, int stmidentity) {
+    public ResultSetHandler(ResultSet rs, CommonHandler statement, String sql) {
+        this(rs, statement.config(), statement.connectionIdentity(), statement.statementIdentity());
+        this.connection = statement.connection();
+        this.admitted = statement.admitted;
+        this.sql = sql;
+    }
+
+    public static ResultSetHandler instance(ResultSet rs, LogConfig config, long connidentity, long stmidentity) {
         return new ResultSetHandler(rs, config, connidentity, stmidentity);
     }
-    
 
-    @Override
-    protected void preInvoke(Method method, Object[] args) {
-        if(config.consumerStatus().isConsumerOn()) {
-            if("next".equals(method.getName())) {
-                if(nextstartTime == 0) nextstartTime = System.currentTimeMillis();
-            }
+    public static ResultSetHandler instance(ResultSet rs, CommonHandler statement, String sql) {
+        return new ResultSetHandler(rs, statement, sql);
+    }
+
+    public void beforeNext() {
+        if(!nextstarted && isTimed()) {
+            nextstartTime = System.nanoTime();
+            nextstarted = true;
         }
     }
     
-    @Override
-    protected Object postInvoke(Method method, Object[] args, Object o) {
-        if(config.consumerStatus().isConsumerOn()) {
-            String name = method.getName();
-            if("next".equals(name)) {
-                if(nextfirstTime == 0) nextfirstTime = System.currentTimeMillis();
-                count++;
-            } else if("close".equals(name)){
-                nextlastTime = System.currentTimeMillis();
-                StringBuilder sb = new StringBuilder();
-                consumerPrefix(sb);
-                sb.append(" resultset row count: ").append(count);
-                sb.append(" first row time: ").append(nextfirstTime-nextstartTime);
-                sb.append(" all rows time: ").append(nextlastTime-nextstartTime);
-                sb.append(" close");
-                consumerPostfix(sb);
-                config.consumer().consume(sb.toString());
+    public void afterNext() {
+        if(nextstarted) {
+            if(!nextfirst) {
+                nextfirstTime = System.nanoTime();
+                nextfirst = true;
             }
+            count++;
         }
-        return o;
     }
     
+    public void close(long starttime, Throwable error) {
+        finish(starttime, error);
+        untrack();
+        nextlastTime = System.nanoTime();
+        if(nextstarted && (metrics() != null)) {
+            metrics().firstRow().record(nextfirstTime-nextstartTime);
+            metrics().allRows().record(nextlastTime-nextstartTime);
+        }
+        if(nextstarted && (stats() != null)) stats().rows(sql, count);
+        if(nextstarted && (connection != null)) connection.rows(count);
+        if(nextstarted && (config.fetchSizeAdvisor() != null)) config.fetchSizeAdvisor().observe(sql, count);
+        if(isOn() && config.logResult() && (admitted || isFail())) {
+            log(event(LogEvent.Type.RESULTSET)
+                .sql(sql)
+                .rows(count)
+                .firstRowTime(nextstarted ? nextfirstTime-nextstartTime : 0)
+                .allRowsTime(nextstarted ? nextlastTime-nextstartTime : 0));
+        }
+    }
     
 }
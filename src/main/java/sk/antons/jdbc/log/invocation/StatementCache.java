@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log.invocation;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import sk.antons.jdbc.log.CacheStats;
+
+/**
+ * Implementation class. LRU cache of prepared statements of one 
+ * connection. Statement is removed from cache when it is borrowed 
+ * and returned back on logical close. Evicted statements are closed.
+ * 
+ * Instance is not thread safe. It is used by one connection the same 
+ * way as connection itself.
+ * @author antons
+ */
+public class StatementCache {
+
+    private final int size;
+    private final CacheStats stats;
+    private final LinkedHashMap<String, LogPreparedStatement> statements;
+
+    public StatementCache(int size, CacheStats stats) {
+        this.size = size;
+        this.stats = stats;
+        this.statements = new LinkedHashMap<String, LogPreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LogPreparedStatement> eldest) {
+                if(size() <= StatementCache.this.size) return false;
+                if(stats != null) stats.eviction();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+    public static StatementCache instance(int size, CacheStats stats) { return new StatementCache(size, stats); }
+
+    /**
+     * Borrows statement from cache.
+     * @param key statement key
+     * @return cached statement or null
+     */
+    public LogPreparedStatement get(String key) {
+        LogPreparedStatement ps = statements.remove(key);
+        if(stats != null) {
+            if(ps == null) stats.miss();
+            else stats.hit();
+        }
+        return ps;
+    }
+
+    /**
+     * Returns statement to cache. 
+     * @param key statement key
+     * @param ps statement
+     * @return false if statement was not cached (other statement with the same key is already cached)
+     */
+    public boolean put(String key, LogPreparedStatement ps) {
+        LogPreparedStatement cached = statements.get(key);
+        if(cached == ps) return true;
+        if(cached != null) return false;
+        statements.put(key, ps);
+        return true;
+    }
+
+    public int size() { return statements.size(); }
+
+    /**
+     * Closes all cached statements.
+     */
+    public void close() {
+        Iterator<LogPreparedStatement> iter = statements.values().iterator();
+        while(iter.hasNext()) {
+            closeQuietly(iter.next());
+            iter.remove();
+        }
+    }
+
+    private static void closeQuietly(LogPreparedStatement ps) {
+        try {
+            ps.wrapped().close();
+        } catch(SQLException | RuntimeException e) {
+            // statement is discarded anyway
+        }
+    }
+
+    public static String key(String sql) {
+        return sql;
+    }
+
+    public static String key(String sql, int resultSetType, int resultSetConcurrency) {
+        return sql + "\u0000" + resultSetType + ',' + resultSetConcurrency;
+    }
+
+    public static String key(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) {
+        return sql + "\u0000" + resultSetType + ',' + resultSetConcurrency + ',' + resultSetHoldability;
+    }
+
+    public static String key(String sql, int autoGeneratedKeys) {
+        return sql + "\u0000k" + autoGeneratedKeys;
+    }
+
+    public static String key(String sql, int[] columnIndexes) {
+        return sql + "\u0000i" + Arrays.toString(columnIndexes);
+    }
+
+    public static String key(String sql, String[] columnNames) {
+        return sql + "\u0000n" + Arrays.toString(columnNames);
+    }
+}
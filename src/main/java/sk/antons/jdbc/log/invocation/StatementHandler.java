@@ -16,10 +16,11 @@
 package sk.antons.jdbc.log.invocation;
 
 import sk.antons.jdbc.log.JdbcWrapper;
-import java.lang.reflect.Method;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import sk.antons.jdbc.log.Batch;
 import sk.antons.jdbc.log.LogConfig;
+import sk.antons.jdbc.log.LogEvent;
 
 /**
  * Implementation class
@@ -27,46 +28,101 @@ import sk.antons.jdbc.log.LogConfig;
  */
 public class StatementHandler extends CommonHandler {
 
+
     Statement stm = null;
+    boolean fetchSizeSet = false;
     
-    public StatementHandler(Statement stm, LogConfig config, int connidentity) {
-        super(stm, config, connidentity, Identities.nextStatement());
+    public StatementHandler(Statement stm, LogConfig config, long connidentity) {
+        super(config, connidentity, Identities.nextStatement());
         this.stm = stm;
     }
 
-    public static StatementHandler instance(Statement stm, LogConfig config, int connidentity) {
+    public StatementHandler(Statement stm, ConnectionHandler connection) {
+        this(stm, connection.config(), connection.connectionIdentity());
+        this.connection = connection;
+    }
+
+    public static StatementHandler instance(Statement stm, LogConfig config, long connidentity) {
         return new StatementHandler(stm, config, connidentity);
     }
-    
 
-    @Override
-    protected void preInvoke(Method method, Object[] args) {
+    public static StatementHandler instance(Statement stm, ConnectionHandler connection) {
+        return new StatementHandler(stm, connection);
     }
-    
-    @Override
-    protected Object postInvoke(Method method, Object[] args, Object o) {
-        if(config.consumerStatus().isConsumerOn()) {
-            String name = method.getName();
-            if("executeQuery".equals(name)) {
-                StringBuilder sb = new StringBuilder();
-                consumerPrefix(sb);
-                sb.append(" statement: ").append(args[0]);
-                consumerPostfix(sb);
-                config.consumer().consume(sb.toString());
-                if(config.logResult() && (o != null)) {
-                    o = JdbcWrapper.wrap((ResultSet)o, config, connidentity, stmidentity);
-                }
-            } else if("executeUpdate".equals(name)){
-                StringBuilder sb = new StringBuilder();
-                consumerPrefix(sb);
-                sb.append(" statement: ").append(args[0]);
-                sb.append(" result: ").append(o);
-                consumerPostfix(sb);
-                config.consumer().consume(sb.toString());
-            }
+
+    /**
+     * Called before query is executed. Sets advised fetch size 
+     * if fetch size was not set explicitly.
+     * @param statement sql to be executed
+     */
+    public void beforeQuery(String statement) {
+        if(!fetchSizeSet) adviseFetchSize(stm, statement);
+    }
+
+    /**
+     * Called when fetch size is set explicitly.
+     * @param rows fetch size
+     */
+    public void fetchSize(int rows) {
+        fetchSizeSet = true;
+    }
+
+    public ResultSet executeQuery(String statement, ResultSet rs, long starttime, Throwable error) {
+        finish(starttime, error);
+        executed(statement, 0);
+        admitted = isOn() && admit(statement);
+        if(admitted && config.logStatement()) {
+            log(event(LogEvent.Type.QUERY).sql(statement));
         }
-        return o;
+        if((rs != null) && (config.collects() || ((config.logResult() || config.logTransaction()) && isOn()))) {
+            rs = JdbcWrapper.wrap(rs, this, statement);
+        }
+        return rs;
     }
     
+    public void executeUpdate(String statement, long result, long starttime, Throwable error) {
+        finish(starttime, error);
+        executed(statement, result);
+        if(isOn() && config.logStatement() && admit(statement)) {
+            log(event(LogEvent.Type.UPDATE).sql(statement).result(result));
+        }
+    }
+
+    public void addBatch(String statement) {
+        if(isOn() && config.logStatement()) {
+            Batch b = batch();
+            b.add(b.nextSlot(), statement);
+        }
+    }
+
+    public void clearBatch() {
+        batch = null;
+    }
+
+    public void executeBatch(int[] counts, long starttime, Throwable error) {
+        finish(starttime, error);
+        executed(null, rows(counts));
+        if(isOn() && config.logStatement() && admit(null)) {
+            if(counts == null) counts = batchCounts(error);
+            log(event(LogEvent.Type.BATCH).batch(batch).counts(counts));
+        }
+        batch = null;
+    }
+
+    public void executeLargeBatch(long[] counts, long starttime, Throwable error) {
+        finish(starttime, error);
+        executed(null, rows(counts));
+        if(isOn() && config.logStatement() && admit(null)) {
+            log(event(LogEvent.Type.BATCH).batch(batch).largeCounts(counts).counts((counts == null) ? batchCounts(error) : null));
+        }
+        batch = null;
+    }
+
+    /**
+     * Called when statement is closed.
+     */
+    public void close() {
+        untrack();
+    }
     
 }
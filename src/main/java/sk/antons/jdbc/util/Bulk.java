@@ -0,0 +1,225 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.util;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Bulk execution of one prepared statement for many parameter rows. 
+ * Rows are sent in jdbc batches of given size and transaction can be 
+ * committed after given number of batches.
+ *
+ * Insert statement can be rewritten to multi row form 
+ * (insert into t (a, b) values (?, ?), (?, ?), ...) so one execution 
+ * inserts more rows. Use it only if database supports such syntax.
+ * <pre>
+ *   Bulk.Result result = Bulk.instance("insert into person (id, name) values (?, ?)")
+ *                           .batchSize(1000)
+ *                           .commitAfter(10)
+ *                           .multiRowValues(50)
+ *                           .execute(db.conn(), rows);
+ *   System.out.println(result);
+ * </pre>
+ * Failed execution is reported as SQLException (BatchUpdateException 
+ * if driver reports it so) with sql state and error code of original 
+ * exception.
+ * @author antons
+ */
+public class Bulk {
+
+    private static final Pattern VALUES = Pattern.compile(
+        "^(\\s*insert\\s.+?\\svalues\\s*)(\\([^()']*\\))\\s*;?\\s*$"
+        , Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final String statement;
+    private int batchSize = 1000;
+    private int commitAfter = 0;
+    private int multiRowValues = 0;
+
+    public Bulk(String statement) { this.statement = statement; }
+    public static Bulk instance(String statement) { return new Bulk(statement); }
+
+    /**
+     * Number of rows sent to database in one batch. (default 1000)
+     * @param value
+     * @return this
+     */
+    public Bulk batchSize(int value) { this.batchSize = Math.max(1, value); return this; }
+
+    /**
+     * Connection is committed after given number of batches and after 
+     * last batch. (default 0 - never, transaction is driven by caller)
+     * @param value number of batches
+     * @return this
+     */
+    public Bulk commitAfter(int value) { this.commitAfter = Math.max(0, value); return this; }
+
+    /**
+     * Insert statement is rewritten to multi row form with given number 
+     * of rows per statement. Statement which is not simple 
+     * 'insert ... values (...)' is not rewritten. (default 0 - no rewrite)
+     * @param rows number of rows in one insert
+     * @return this
+     */
+    public Bulk multiRowValues(int rows) { this.multiRowValues = Math.max(0, rows); return this; }
+
+    /**
+     * Executes statement for all rows.
+     * @param conn connection
+     * @param rows parameter rows (set by setObject)
+     * @return execution summary
+     * @throws SQLException
+     */
+    public Result execute(Connection conn, Stream<Object[]> rows) throws SQLException {
+        return execute(conn, rows.iterator());
+    }
+
+    /**
+     * Executes statement for all rows.
+     * @param conn connection
+     * @param rows parameter rows (set by setObject)
+     * @return execution summary
+     * @throws SQLException
+     */
+    public Result execute(Connection conn, Iterable<Object[]> rows) throws SQLException {
+        return execute(conn, rows.iterator());
+    }
+
+    private Result execute(Connection conn, Iterator<Object[]> rows) throws SQLException {
+        Result result = new Result();
+        long start = System.nanoTime();
+        Matcher matcher = VALUES.matcher(statement);
+        int perStatement = ((multiRowValues > 1) && matcher.matches()) ? multiRowValues : 1;
+        String prefix = (perStatement > 1) ? matcher.group(1) : null;
+        String tuple = (perStatement > 1) ? matcher.group(2) : null;
+        int statementsPerBatch = Math.max(1, batchSize / perStatement);
+
+        try(PreparedStatement ps = conn.prepareStatement((perStatement > 1) ? rewrite(prefix, tuple, perStatement) : statement)) {
+            Object[][] chunk = new Object[perStatement][];
+            int chunkSize = 0;
+            int batched = 0;
+            while(rows.hasNext()) {
+                chunk[chunkSize++] = rows.next();
+                if(chunkSize < perStatement) continue;
+                bind(ps, chunk, chunkSize);
+                ps.addBatch();
+                chunkSize = 0;
+                result.rows += perStatement;
+                if(++batched == statementsPerBatch) {
+                    flush(conn, ps, result);
+                    batched = 0;
+                }
+            }
+            if(batched > 0) flush(conn, ps, result);
+            if(chunkSize > 0) {
+                // last incomplete multi row insert
+                try(PreparedStatement rest = conn.prepareStatement(rewrite(prefix, tuple, chunkSize))) {
+                    bind(rest, chunk, chunkSize);
+                    rest.addBatch();
+                    result.rows += chunkSize;
+                    flush(conn, rest, result);
+                }
+            }
+        } catch(SQLException e) {
+            String message = "bulk statement: " + statement + " failed in batch: " + (result.batches + 1);
+            if(e instanceof BatchUpdateException) {
+                throw new BatchUpdateException(message, e.getSQLState(), e.getErrorCode()
+                    , ((BatchUpdateException)e).getUpdateCounts(), e);
+            }
+            throw new SQLException(message, e.getSQLState(), e.getErrorCode(), e);
+        }
+        if((commitAfter > 0) && ((result.batches % commitAfter) != 0)) conn.commit();
+        result.time = System.nanoTime() - start;
+        return result;
+    }
+
+    private void flush(Connection conn, PreparedStatement ps, Result result) throws SQLException {
+        int[] counts = ps.executeBatch();
+        for(int count : counts) {
+            if(count > 0) result.updated += count;
+        }
+        result.batches++;
+        if((commitAfter > 0) && ((result.batches % commitAfter) == 0)) conn.commit();
+    }
+
+    private static void bind(PreparedStatement ps, Object[][] chunk, int chunkSize) throws SQLException {
+        int index = 1;
+        for(int i = 0; i < chunkSize; i++) {
+            for(Object value : chunk[i]) ps.setObject(index++, value);
+        }
+    }
+
+    private static String rewrite(String prefix, String tuple, int rows) {
+        StringBuilder sb = new StringBuilder(prefix.length() + (tuple.length() + 2) * rows);
+        sb.append(prefix);
+        for(int i = 0; i < rows; i++) {
+            if(i > 0) sb.append(", ");
+            sb.append(tuple);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Summary of bulk execution.
+     */
+    public static class Result {
+        private long rows;
+        private long updated;
+        private long batches;
+        private long time;
+
+        /**
+         * Number of processed parameter rows.
+         * @return count
+         */
+        public long rows() { return rows; }
+        /**
+         * Number of updated rows reported by database 
+         * (Statement.SUCCESS_NO_INFO is not counted).
+         * @return count
+         */
+        public long updated() { return updated; }
+        /**
+         * Number of executed batches.
+         * @return count
+         */
+        public long batches() { return batches; }
+        /**
+         * Execution time in nanoseconds.
+         * @return time
+         */
+        public long time() { return time; }
+        /**
+         * Processed rows per second.
+         * @return throughput
+         */
+        public double rowsPerSecond() { return (time == 0) ? 0 : rows * 1000000000d / time; }
+
+        @Override
+        public String toString() {
+            return "bulk rows: " + rows + " updated: " + updated + " batches: " + batches 
+                + " time: " + String.format("%.3f", time / 1000000d) 
+                + " rows/s: " + String.format("%.0f", rowsPerSecond());
+        }
+    }
+}
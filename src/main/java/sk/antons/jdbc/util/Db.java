@@ -20,6 +20,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
 /**
  * Simple wrapper around Connection, Statement and ResultSet.
@@ -33,6 +43,19 @@ public class Db implements AutoCloseable {
     private PreparedStatement ps = null;
     private ResultSet rs = null;
     private String laststm = null;
+    private NamedSql named = null;
+    private int fetchSize = 0;
+    private int statementCache = 0;
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if(size() <= statementCache) return false;
+            if(eldest.getValue() == ps) ps = null;
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+    private final List<Cursor<?>> cursors = new ArrayList<>();
 
 
     public Db(DataSource ds) { this.ds = ds; }
@@ -44,8 +67,9 @@ public class Db implements AutoCloseable {
      */
     @Override
     public void close() throws Exception {
+        closeCursors();
         closeResultSet();
-        closePreparedStatement();
+        closePreparedStatements();
         closeStatement();
         closeConnection();
     }
@@ -71,6 +95,37 @@ public class Db implements AutoCloseable {
      */
     public ResultSet rs() { return rs; }
 
+    /**
+     * Number of prepared statements kept open by prepareStatement(). 
+     * When the same sql is prepared again cached statement is reused 
+     * (with cleared parameters). Least recently used statement is closed 
+     * when cache is full. Cached statements stay open until Db is closed 
+     * or cache is disabled. (default 0 - previous statement is closed 
+     * by each prepareStatement())
+     * @param size max number of cached statements
+     * @return this
+     */
+    public Db statementCache(int size) {
+        this.statementCache = Math.max(0, size);
+        if(statementCache == 0) {
+            for(PreparedStatement cached : statements.values()) {
+                if(cached != ps) closeQuietly(cached);
+            }
+            statements.clear();
+        }
+        return this;
+    }
+
+    /**
+     * Fetch size used by stream(). (default 0 - driver default)
+     * @param rows number of rows fetched from database in one round trip
+     * @return this
+     */
+    public Db fetchSize(int rows) {
+        this.fetchSize = Math.max(0, rows);
+        return this;
+    }
+
     /**
      * Last created Connection. New connection is created from provided
      * DataSource during first call.
@@ -127,21 +182,75 @@ public class Db implements AutoCloseable {
     }
 
     /**
-     * Close previous PreparedStatement and creates newone.
+     * Creates PreparedStatement or reuses cached one for the same sql.
+     * Previous PreparedStatement is closed if statement cache is disabled.
      * @param statement to be prepared
      * @throws SQLException
      */
     public void prepareStatement(String statement) throws SQLException {
         laststm = statement;
+        named = null;
         try {
-            closePreparedStatement();
+            if(statementCache > 0) {
+                PreparedStatement cached = statements.get(statement);
+                if((cached != null) && !cached.isClosed()) {
+                    cached.clearParameters();
+                    ps = cached;
+                    return;
+                }
+            } else {
+                closePreparedStatement();
+            }
             ps = conn().prepareStatement(statement);
+            if(statementCache > 0) statements.put(statement, ps);
         } catch (SQLException e) {
             if(laststm != null) throw new SQLException("last statement: " +laststm, e);
             throw e;
         }
     }
 
+    /**
+     * Creates (or reuses cached) PreparedStatement for sql with named 
+     * parameters (:name). Parameters are set by bind().
+     * <pre>
+     *   db.prepareNamedStatement("update person set name = :name where id = :id");
+     *   db.bind(person);
+     *   db.executeUpdate();
+     * </pre>
+     * @see NamedSql
+     * @param statement to be prepared
+     * @throws SQLException
+     */
+    public void prepareNamedStatement(String statement) throws SQLException {
+        NamedSql plan = NamedSql.of(statement);
+        prepareStatement(plan.sql());
+        named = plan;
+    }
+
+    /**
+     * Sets parameters of statement created by prepareNamedStatement() from map.
+     * @param params parameter values by name
+     * @throws SQLException
+     */
+    public void bind(Map<String, ?> params) throws SQLException {
+        named().bind(ps, params);
+    }
+
+    /**
+     * Sets parameters of statement created by prepareNamedStatement() 
+     * from bean properties.
+     * @param bean parameter values
+     * @throws SQLException
+     */
+    public void bind(Object bean) throws SQLException {
+        named().bind(ps, bean);
+    }
+
+    private NamedSql named() throws SQLException {
+        if(named == null) throw new SQLException("No statement with named parameters is prepared");
+        return named;
+    }
+
     /**
      * Execute update for previously created PreparedStatement.
      * @return number of affected rows
@@ -173,6 +282,155 @@ public class Db implements AutoCloseable {
         }
     }
 
+    /**
+     * Executes query and returns lazy stream of mapped rows. Rows are 
+     * read from database only when stream is consumed, so large results 
+     * are processed in constant memory. Stream uses its own statement 
+     * and result set (they are not accessible by ps() and rs()). They are 
+     * closed when stream is fully consumed, when stream is closed or 
+     * when Db is closed. SQLException during reading is rethrown as 
+     * IllegalStateException.
+     * <pre>
+     *   try(Stream&lt;String&gt; names = db.fetchSize(1000).stream("select name from person where age &gt; ?"
+     *                                    , new Object[]{18}, rs -&gt; rs.getString(1))) {
+     *       names.forEach(...);
+     *   }
+     * </pre>
+     * @param statement query with ? placeholders
+     * @param params parameters (set by setObject) or null
+     * @param mapper row mapper
+     * @return stream of mapped rows
+     * @throws SQLException
+     */
+    public <T> Stream<T> stream(String statement, Object[] params, RowMapper<T> mapper) throws SQLException {
+        laststm = statement;
+        PreparedStatement stm = null;
+        try {
+            stm = conn().prepareStatement(statement, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if(fetchSize > 0) stm.setFetchSize(fetchSize);
+            if(params != null) {
+                for(int i = 0; i < params.length; i++) stm.setObject(i + 1, params[i]);
+            }
+            Cursor<T> cursor = new Cursor<>(stm, stm.executeQuery(), mapper);
+            cursors.add(cursor);
+            return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED)
+                , false).onClose(cursor::close);
+        } catch (SQLException e) {
+            closeQuietly(stm);
+            if(laststm != null) throw new SQLException("last statement: " +laststm, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Executes query without parameters and returns lazy stream of mapped rows.
+     * @see #stream(java.lang.String, java.lang.Object[], sk.antons.jdbc.util.RowMapper)
+     * @param statement query
+     * @param mapper row mapper
+     * @return stream of mapped rows
+     * @throws SQLException
+     */
+    public <T> Stream<T> stream(String statement, RowMapper<T> mapper) throws SQLException {
+        return stream(statement, null, mapper);
+    }
+
+    /**
+     * Executes statement for all rows in batches using connection 
+     * of this Db. Transaction is not committed.
+     * @see Bulk
+     * @param statement statement with ? placeholders
+     * @param rows parameter rows (set by setObject)
+     * @return execution summary
+     * @throws SQLException
+     */
+    public Bulk.Result bulk(String statement, Iterable<Object[]> rows) throws SQLException {
+        return bulk(Bulk.instance(statement), rows);
+    }
+
+    /**
+     * Executes configured bulk for all rows using connection of this Db.
+     * <pre>
+     *   db.bulk(Bulk.instance("insert into person (id, name) values (?, ?)")
+     *          .batchSize(1000).commitAfter(10), rows);
+     * </pre>
+     * @param bulk bulk execution
+     * @param rows parameter rows (set by setObject)
+     * @return execution summary
+     * @throws SQLException
+     */
+    public Bulk.Result bulk(Bulk bulk, Iterable<Object[]> rows) throws SQLException {
+        return bulk.execute(conn(), rows);
+    }
+
+    /**
+     * Close all not consumed streams.
+     */
+    public void closeCursors() {
+        for(Cursor<?> cursor : new ArrayList<>(cursors)) cursor.close();
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            if(closeable != null) closeable.close();
+        } catch(Exception e) {
+            //log.warn("Unable to close {}", e.toString());
+        }
+    }
+
+    /**
+     * Iterator over result set of one stream. Closes result set and 
+     * statement after last row.
+     */
+    private class Cursor<T> implements Iterator<T> {
+        private final PreparedStatement stm;
+        private final ResultSet cursor;
+        private final RowMapper<T> mapper;
+        private Boolean hasNext = null;
+        private boolean closed = false;
+
+        Cursor(PreparedStatement stm, ResultSet cursor, RowMapper<T> mapper) throws SQLException {
+            this.stm = stm;
+            this.cursor = cursor;
+            this.mapper = (mapper instanceof ResultMapper) ? ((ResultMapper<T>)mapper).rowMapper(cursor) : mapper;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if(hasNext == null) {
+                if(closed) return false;
+                try {
+                    hasNext = cursor.next();
+                } catch(SQLException e) {
+                    close();
+                    throw new IllegalStateException(e);
+                }
+                if(!hasNext) close();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if(!hasNext()) throw new NoSuchElementException();
+            hasNext = null;
+            try {
+                return mapper.map(cursor);
+            } catch(SQLException e) {
+                close();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void close() {
+            if(closed) return;
+            closed = true;
+            closeQuietly(cursor);
+            closeQuietly(stm);
+            cursors.remove(this);
+        }
+    }
+
     /**
      * Close last ResultSet.
      */
@@ -204,18 +462,30 @@ public class Db implements AutoCloseable {
      */
     public void closePreparedStatement() {
         try {
+            if(ps != null) statements.values().remove(ps);
             if((ps != null) && (!ps.isClosed())) ps.close();
             ps = null;
+            named = null;
             laststm = null;
         } catch(Exception e) {
             //log.warn("Unable to close prepared sattement {}", e.toString());
         }
     }
 
+    /**
+     * Close last PreparedStatement and all cached ones.
+     */
+    public void closePreparedStatements() {
+        closePreparedStatement();
+        for(PreparedStatement cached : statements.values()) closeQuietly(cached);
+        statements.clear();
+    }
+
     /**
      * Close Connection. Connection is rollbacked before
      */
     public void closeConnection() {
+        closePreparedStatements();
         try {
             if((conn != null)) conn.rollback();
             if((conn != null) && (!conn.isClosed())) conn.close();
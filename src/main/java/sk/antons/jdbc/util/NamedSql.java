@@ -0,0 +1,262 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sql with named parameters (:name). Sql is parsed only once to 
+ * immutable plan (jdbc sql with ? and parameter name for each position) 
+ * and plans are cached by sql text. Parameters are bound from Map or 
+ * from bean properties (getName(), isName(), name() or public field). 
+ * Accessors of bean class are resolved once to MethodHandles and 
+ * primitive values are bound by type specific setters without boxing.
+ * <pre>
+ *   NamedSql sql = NamedSql.of("select * from person where name = :name and age &gt; :age");
+ *   PreparedStatement ps = conn.prepareStatement(sql.sql());
+ *   sql.bind(ps, person);
+ * </pre>
+ * Literals, quoted identifiers, comments and postgres casts (::) are 
+ * not treated as parameters.
+ * @author antons
+ */
+public class NamedSql {
+
+    private static final int MAX_PLANS = 4096;
+    private static final Map<String, NamedSql> plans = new ConcurrentHashMap<>();
+
+    private final String source;
+    private final String sql;
+    private final String[] names;
+    private final Map<Class<?>, Binder[]> binders = new ConcurrentHashMap<>();
+
+    private NamedSql(String source, String sql, String[] names) {
+        this.source = source;
+        this.sql = sql;
+        this.names = names;
+    }
+
+    /**
+     * Parsed plan for given sql. Plans are cached (cache is cleared when 
+     * it contains too many plans, so dynamically generated sql can't 
+     * exhaust memory).
+     * @param sql sql with named parameters
+     * @return plan
+     */
+    public static NamedSql of(String sql) {
+        NamedSql plan = plans.get(sql);
+        if(plan != null) return plan;
+        if(plans.size() >= MAX_PLANS) plans.clear();
+        return plans.computeIfAbsent(sql, NamedSql::parse);
+    }
+
+    /**
+     * Original sql with named parameters.
+     * @return sql
+     */
+    public String source() { return source; }
+    /**
+     * Jdbc sql with ? placeholders.
+     * @return sql
+     */
+    public String sql() { return sql; }
+    /**
+     * Parameter names by position (name of first ? is at index 0).
+     * @return names
+     */
+    public List<String> names() { return Collections.unmodifiableList(Arrays.asList(names)); }
+
+    /**
+     * Binds parameters from map (missing parameter is error, null value is bound as null).
+     * @param ps statement prepared for sql()
+     * @param params parameter values by name
+     * @throws SQLException
+     */
+    public void bind(PreparedStatement ps, Map<String, ?> params) throws SQLException {
+        for(int i = 0; i < names.length; i++) {
+            Object value = params.get(names[i]);
+            if((value == null) && !params.containsKey(names[i])) {
+                throw new SQLException("Missing parameter :" + names[i] + " for " + source);
+            }
+            ps.setObject(i + 1, value);
+        }
+    }
+
+    /**
+     * Binds parameters from bean properties.
+     * @param ps statement prepared for sql()
+     * @param bean parameter values
+     * @throws SQLException
+     * @throws IllegalArgumentException if bean has no property for some parameter
+     */
+    @SuppressWarnings("unchecked")
+    public void bind(PreparedStatement ps, Object bean) throws SQLException {
+        if(bean instanceof Map) {
+            bind(ps, (Map<String, ?>)bean);
+            return;
+        }
+        Binder[] plan = binders.get(bean.getClass());
+        if(plan == null) plan = binders.computeIfAbsent(bean.getClass(), this::binders);
+        try {
+            for(int i = 0; i < plan.length; i++) plan[i].bind(ps, i + 1, bean);
+        } catch(SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch(Throwable e) {
+            throw new SQLException(e);
+        }
+    }
+
+    private static NamedSql parse(String source) {
+        StringBuilder sb = new StringBuilder(source.length());
+        List<String> names = new ArrayList<>();
+        int len = source.length();
+        int i = 0;
+        while(i < len) {
+            char c = source.charAt(i);
+            if((c == '\'') || (c == '"')) {
+                int end = source.indexOf(c, i + 1);
+                end = (end < 0) ? len : end + 1;
+                sb.append(source, i, end);
+                i = end;
+            } else if((c == '-') && (i + 1 < len) && (source.charAt(i + 1) == '-')) {
+                int end = source.indexOf('\n', i);
+                end = (end < 0) ? len : end;
+                sb.append(source, i, end);
+                i = end;
+            } else if((c == '/') && (i + 1 < len) && (source.charAt(i + 1) == '*')) {
+                int end = source.indexOf("*/", i + 2);
+                end = (end < 0) ? len : end + 2;
+                sb.append(source, i, end);
+                i = end;
+            } else if((c == ':') && (i + 1 < len) && (source.charAt(i + 1) == ':')) {
+                sb.append("::");
+                i += 2;
+            } else if((c == ':') && (i + 1 < len) && Character.isJavaIdentifierStart(source.charAt(i + 1))) {
+                int end = i + 2;
+                while((end < len) && Character.isJavaIdentifierPart(source.charAt(end))) end++;
+                names.add(source.substring(i + 1, end));
+                sb.append('?');
+                i = end;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return new NamedSql(source, sb.toString(), names.toArray(new String[names.size()]));
+    }
+
+    private Binder[] binders(Class<?> clazz) {
+        Map<String, Binder> byName = new HashMap<>();
+        Binder[] plan = new Binder[names.length];
+        for(int i = 0; i < names.length; i++) {
+            Binder binder = byName.get(names[i]);
+            if(binder == null) {
+                binder = binder(accessor(clazz, names[i]));
+                byName.put(names[i], binder);
+            }
+            plan[i] = binder;
+        }
+        return plan;
+    }
+
+    private MethodHandle accessor(Class<?> clazz, String name) {
+        String cap = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            for(String candidate : new String[]{"get" + cap, "is" + cap, name}) {
+                Method method = method(clazz, candidate);
+                if((method == null) || (method.getReturnType() == void.class)) continue;
+                method.setAccessible(true);
+                return lookup.unreflect(method);
+            }
+            for(Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+                for(Field field : c.getDeclaredFields()) {
+                    if(!field.getName().equals(name) || Modifier.isStatic(field.getModifiers())) continue;
+                    field.setAccessible(true);
+                    return lookup.unreflectGetter(field);
+                }
+            }
+        } catch(IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("Unable to access property " + name + " of " + clazz.getName(), e);
+        }
+        throw new IllegalArgumentException("No property " + name + " in " + clazz.getName() + " for " + source);
+    }
+
+    private static Method method(Class<?> clazz, String name) {
+        for(Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            try {
+                Method method = c.getDeclaredMethod(name);
+                if(!Modifier.isStatic(method.getModifiers())) return method;
+            } catch(NoSuchMethodException e) {
+                // try superclass
+            }
+        }
+        return null;
+    }
+
+    private static Binder binder(MethodHandle getter) {
+        Class<?> type = getter.type().returnType();
+        if(type == int.class) {
+            MethodHandle h = getter.asType(MethodType.methodType(int.class, Object.class));
+            return (ps, index, bean) -> ps.setInt(index, (int)h.invokeExact(bean));
+        } else if(type == long.class) {
+            MethodHandle h = getter.asType(MethodType.methodType(long.class, Object.class));
+            return (ps, index, bean) -> ps.setLong(index, (long)h.invokeExact(bean));
+        } else if(type == double.class) {
+            MethodHandle h = getter.asType(MethodType.methodType(double.class, Object.class));
+            return (ps, index, bean) -> ps.setDouble(index, (double)h.invokeExact(bean));
+        } else if(type == boolean.class) {
+            MethodHandle h = getter.asType(MethodType.methodType(boolean.class, Object.class));
+            return (ps, index, bean) -> ps.setBoolean(index, (boolean)h.invokeExact(bean));
+        } else if(type == float.class) {
+            MethodHandle h = getter.asType(MethodType.methodType(float.class, Object.class));
+            return (ps, index, bean) -> ps.setFloat(index, (float)h.invokeExact(bean));
+        } else if(type == short.class) {
+            MethodHandle h = getter.asType(MethodType.methodType(short.class, Object.class));
+            return (ps, index, bean) -> ps.setShort(index, (short)h.invokeExact(bean));
+        } else if(type == byte.class) {
+            MethodHandle h = getter.asType(MethodType.methodType(byte.class, Object.class));
+            return (ps, index, bean) -> ps.setByte(index, (byte)h.invokeExact(bean));
+        } else if(type == String.class) {
+            MethodHandle h = getter.asType(MethodType.methodType(String.class, Object.class));
+            return (ps, index, bean) -> ps.setString(index, (String)h.invokeExact(bean));
+        }
+        MethodHandle h = getter.asType(MethodType.methodType(Object.class, Object.class));
+        return (ps, index, bean) -> ps.setObject(index, (Object)h.invokeExact(bean));
+    }
+
+    /**
+     * Binds one parameter from bean.
+     */
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement ps, int index, Object bean) throws Throwable;
+    }
+}
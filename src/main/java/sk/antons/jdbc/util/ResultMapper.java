@@ -0,0 +1,330 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RowMapper which creates instances of given class from columns with 
+ * matching labels (case and '_' are ignored, so column first_name is 
+ * mapped to property firstName). 
+ * 
+ * Records are created by canonical constructor (record is detected 
+ * reflectively, so library works on java 8 too). Other classes are 
+ * created by no arg constructor and filled by setters or fields.
+ * 
+ * Mapper for each class is created only once. Column labels are 
+ * resolved to indexes once for each result set shape and each column 
+ * is read by type specific getter (getInt(), getLong(), ...) connected 
+ * directly to setter or constructor by MethodHandles, so primitive 
+ * values are not boxed.
+ * <pre>
+ *   try(Stream&lt;Person&gt; persons = db.stream("select id, first_name from person", ResultMapper.of(Person.class))) {
+ *       ...
+ *   }
+ * </pre>
+ * @author antons
+ */
+public class ResultMapper<T> implements RowMapper<T> {
+
+    private static final Map<Class<?>, ResultMapper<?>> mappers = new ConcurrentHashMap<>();
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private static final MethodHandle READ_OBJECT;
+    static {
+        try {
+            READ_OBJECT = lookup.findStatic(ResultMapper.class, "read"
+                , MethodType.methodType(Object.class, ResultSet.class, int.class, Class.class));
+        } catch(NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<T> clazz;
+    private final Map<String, Property> properties;
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+    private final MethodHandle constructor;
+    private final boolean record;
+    private final ThreadLocal<Shape> last = new ThreadLocal<>();
+
+    private ResultMapper(Class<T> clazz) {
+        this.clazz = clazz;
+        this.properties = new HashMap<>();
+        Object[] components = recordComponents(clazz);
+        this.record = components != null;
+        try {
+            if(record) {
+                Class<?>[] types = new Class<?>[components.length];
+                for(int i = 0; i < components.length; i++) {
+                    Object component = components[i];
+                    String name = (String)component.getClass().getMethod("getName").invoke(component);
+                    types[i] = (Class<?>)component.getClass().getMethod("getType").invoke(component);
+                    properties.put(normalize(name), new Property(types[i], i, null));
+                }
+                Constructor<T> ctor = clazz.getDeclaredConstructor(types);
+                ctor.setAccessible(true);
+                this.constructor = lookup.unreflectConstructor(ctor);
+            } else {
+                Constructor<T> ctor = clazz.getDeclaredConstructor();
+                ctor.setAccessible(true);
+                this.constructor = lookup.unreflectConstructor(ctor)
+                    .asType(MethodType.methodType(Object.class));
+                for(Class<?> c = clazz; (c != null) && (c != Object.class); c = c.getSuperclass()) {
+                    for(Field field : c.getDeclaredFields()) {
+                        int mod = field.getModifiers();
+                        if(Modifier.isStatic(mod) || Modifier.isFinal(mod)) continue;
+                        String key = normalize(field.getName());
+                        if(properties.containsKey(key)) continue;
+                        field.setAccessible(true);
+                        properties.put(key, new Property(field.getType(), -1, lookup.unreflectSetter(field)));
+                    }
+                }
+                for(Method method : clazz.getMethods()) {
+                    if(!method.getName().startsWith("set") || (method.getParameterCount() != 1) 
+                        || Modifier.isStatic(method.getModifiers())) continue;
+                    method.setAccessible(true);
+                    properties.put(normalize(method.getName().substring(3))
+                        , new Property(method.getParameterTypes()[0], -1, lookup.unreflect(method)));
+                }
+            }
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("Unable to create mapper for " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Mapper for given class. Mappers are cached.
+     * @param clazz mapped class (record or class with no arg constructor)
+     * @return mapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ResultMapper<T> of(Class<T> clazz) {
+        ResultMapper<?> mapper = mappers.get(clazz);
+        if(mapper == null) mapper = mappers.computeIfAbsent(clazz, ResultMapper::new);
+        return (ResultMapper<T>)mapper;
+    }
+
+    /**
+     * Maps current row. Plan of last result set mapped by current thread 
+     * is remembered (result set itself is weakly referenced). Use 
+     * rowMapper(rs) if all rows of one result set are mapped in loop.
+     * @param rs result set positioned to mapped row
+     * @return mapped object
+     * @throws SQLException
+     */
+    @Override
+    public T map(ResultSet rs) throws SQLException {
+        Shape shape = last.get();
+        if((shape == null) || (shape.rs.get() != rs)) {
+            shape = new Shape(rs, plan(rs.getMetaData()));
+            last.set(shape);
+        }
+        return map(shape.plan, rs);
+    }
+
+    /**
+     * Mapper bound to shape of given result set. Column labels are 
+     * resolved only once, so returned mapper can be used for all rows 
+     * of this result set.
+     * @param rs mapped result set
+     * @return row mapper
+     * @throws SQLException
+     */
+    public RowMapper<T> rowMapper(ResultSet rs) throws SQLException {
+        Plan plan = plan(rs.getMetaData());
+        return row -> map(plan, row);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T map(Plan plan, ResultSet rs) throws SQLException {
+        try {
+            return (T)plan.map(rs);
+        } catch(SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch(Throwable e) {
+            throw new SQLException(e);
+        }
+    }
+
+    private Plan plan(ResultSetMetaData md) throws SQLException {
+        int count = md.getColumnCount();
+        String[] labels = new String[count];
+        for(int i = 0; i < count; i++) labels[i] = normalize(md.getColumnLabel(i + 1));
+        String key = String.join("\u0001", labels);
+        Plan plan = plans.get(key);
+        if(plan == null) plan = plans.computeIfAbsent(key, k -> record ? recordPlan(labels) : beanPlan(labels));
+        return plan;
+    }
+
+    private Plan recordPlan(String[] labels) {
+        MethodHandle[] readers = new MethodHandle[constructor.type().parameterCount()];
+        for(int i = 0; i < labels.length; i++) {
+            Property property = properties.get(labels[i]);
+            if((property != null) && (readers[property.position] == null)) {
+                readers[property.position] = reader(property.type, i + 1);
+            }
+        }
+        MethodHandle handle = constructor;
+        for(int i = 0; i < readers.length; i++) {
+            Class<?> type = handle.type().parameterType(i);
+            MethodHandle reader = (readers[i] != null) ? readers[i] 
+                : MethodHandles.dropArguments(MethodHandles.constant(type, empty(type)), 0, ResultSet.class);
+            handle = MethodHandles.filterArguments(handle, i, reader);
+        }
+        handle = MethodHandles.permuteArguments(handle
+            , MethodType.methodType(clazz, ResultSet.class), new int[readers.length]);
+        MethodHandle create = handle.asType(MethodType.methodType(Object.class, ResultSet.class));
+        return rs -> (Object)create.invokeExact(rs);
+    }
+
+    private Plan beanPlan(String[] labels) {
+        Map<String, MethodHandle> writers = new HashMap<>();
+        for(int i = 0; i < labels.length; i++) {
+            Property property = properties.get(labels[i]);
+            if((property == null) || writers.containsKey(labels[i])) continue;
+            MethodHandle writer = MethodHandles.filterArguments(property.setter, 1, reader(property.type, i + 1));
+            writers.put(labels[i], writer.asType(MethodType.methodType(void.class, Object.class, ResultSet.class)));
+        }
+        MethodHandle[] write = writers.values().toArray(new MethodHandle[writers.size()]);
+        MethodHandle create = constructor;
+        return rs -> {
+            Object bean = (Object)create.invokeExact();
+            for(MethodHandle writer : write) writer.invokeExact(bean, rs);
+            return bean;
+        };
+    }
+
+    /**
+     * Handle (ResultSet)type reading column with given index.
+     */
+    private static MethodHandle reader(Class<?> type, int index) {
+        String getter = null;
+        if(type == int.class) getter = "getInt";
+        else if(type == long.class) getter = "getLong";
+        else if(type == double.class) getter = "getDouble";
+        else if(type == boolean.class) getter = "getBoolean";
+        else if(type == float.class) getter = "getFloat";
+        else if(type == short.class) getter = "getShort";
+        else if(type == byte.class) getter = "getByte";
+        else if(type == String.class) getter = "getString";
+        else if(type == BigDecimal.class) getter = "getBigDecimal";
+        else if(type == byte[].class) getter = "getBytes";
+        else if(type == java.sql.Timestamp.class) getter = "getTimestamp";
+        else if(type == java.sql.Date.class) getter = "getDate";
+        else if(type == java.sql.Time.class) getter = "getTime";
+        try {
+            MethodHandle handle = (getter != null)
+                ? lookup.findVirtual(ResultSet.class, getter, MethodType.methodType(type, int.class))
+                : MethodHandles.insertArguments(READ_OBJECT, 2, type).asType(MethodType.methodType(type, ResultSet.class, int.class));
+            return MethodHandles.insertArguments(handle, 1, index);
+        } catch(NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads column which has no type specific getter (boxed primitives 
+     * keep null, other types are converted by driver).
+     */
+    private static Object read(ResultSet rs, int index, Class<?> type) throws SQLException {
+        if(type == Integer.class) { int v = rs.getInt(index); return rs.wasNull() ? null : v; }
+        if(type == Long.class) { long v = rs.getLong(index); return rs.wasNull() ? null : v; }
+        if(type == Double.class) { double v = rs.getDouble(index); return rs.wasNull() ? null : v; }
+        if(type == Boolean.class) { boolean v = rs.getBoolean(index); return rs.wasNull() ? null : v; }
+        if(type == Float.class) { float v = rs.getFloat(index); return rs.wasNull() ? null : v; }
+        if(type == Short.class) { short v = rs.getShort(index); return rs.wasNull() ? null : v; }
+        if(type == Byte.class) { byte v = rs.getByte(index); return rs.wasNull() ? null : v; }
+        if(type == Object.class) return rs.getObject(index);
+        return rs.getObject(index, type);
+    }
+
+    private static Object empty(Class<?> type) {
+        if(!type.isPrimitive()) return null;
+        if(type == boolean.class) return false;
+        if(type == char.class) return (char)0;
+        return Array.get(Array.newInstance(type, 1), 0);
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Record components (via reflection, so it works on java 8) or null 
+     * if class is not record.
+     */
+    private static Object[] recordComponents(Class<?> clazz) {
+        try {
+            if(!(Boolean)Class.class.getMethod("isRecord").invoke(clazz)) return null;
+            return (Object[])Class.class.getMethod("getRecordComponents").invoke(clazz);
+        } catch(NoSuchMethodException e) {
+            return null;
+        } catch(ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unable to read record " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Mapped property (record component position or setter).
+     */
+    private static class Property {
+        private final Class<?> type;
+        private final int position;
+        private final MethodHandle setter;
+
+        Property(Class<?> type, int position, MethodHandle setter) {
+            this.type = type;
+            this.position = position;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * Compiled mapping for one result set shape.
+     */
+    @FunctionalInterface
+    private interface Plan {
+        Object map(ResultSet rs) throws Throwable;
+    }
+
+    /**
+     * Plan of last mapped result set, so metadata are read only once per result set.
+     */
+    private static class Shape {
+        private final WeakReference<ResultSet> rs;
+        private final Plan plan;
+
+        Shape(ResultSet rs, Plan plan) {
+            this.rs = new WeakReference<>(rs);
+            this.plan = plan;
+        }
+    }
+}
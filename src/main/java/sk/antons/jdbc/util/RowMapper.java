@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.util;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps current row of ResultSet to object.
+ * @author antons
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Maps current row. Implementation should not move cursor.
+     * @param rs result set positioned to mapped row
+     * @return mapped object
+     * @throws SQLException
+     */
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.ds;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * DriverManagerDataSource warm up.
+ * @author antons
+ */
+public class DriverManagerDataSourceTest {
+
+    private static int sessions(Connection conn) throws Exception {
+        try(Statement st = conn.createStatement(); 
+            ResultSet rs = st.executeQuery("select count(*) from information_schema.sessions")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void returnsWarmConnection() throws Exception {
+        DriverManagerDataSource ds = DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:warm1;DB_CLOSE_DELAY=-1", "sa", "");
+        ds.warmUp(2);
+        try(Connection conn = ds.getConnection()) {
+            Assert.assertEquals(2, sessions(conn));
+            Assert.assertFalse(conn.getAutoCommit());
+        }
+        ds.close();
+    }
+
+    @Test
+    public void oldWarmConnectionIsClosed() throws Exception {
+        DriverManagerDataSource ds = DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:warm2;DB_CLOSE_DELAY=-1", "sa", "");
+        ds.warmUpMaxAge(0).warmUp(1);
+        Thread.sleep(5);
+        try(Connection conn = ds.getConnection()) {
+            Assert.assertEquals(1, sessions(conn));
+        }
+    }
+
+    @Test
+    public void invalidWarmConnectionIsSkipped() throws Exception {
+        DriverManagerDataSource ds = DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:warm3;DB_CLOSE_DELAY=-1", "sa", "");
+        ds.warmUp(1);
+        try(Connection admin = ds.getConnection(); Statement st = admin.createStatement()) {
+            ds.warmUp(1);
+            st.execute("call abort_session((select max(session_id) from information_schema.sessions))");
+            try(Connection conn = ds.getConnection()) {
+                Assert.assertTrue(conn.isValid(1));
+            }
+        }
+    }
+
+    @Test
+    public void closeClosesWarmConnections() throws Exception {
+        DriverManagerDataSource ds = DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:warm4;DB_CLOSE_DELAY=-1", "sa", "");
+        ds.warmUp(3);
+        ds.close();
+        try(Connection conn = ds.getConnection()) {
+            Assert.assertEquals(1, sessions(conn));
+        }
+    }
+
+    @Test
+    public void interruptedWarmUpLeavesNoConnection() throws Exception {
+        DriverManagerDataSource ds = DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:warm5;DB_CLOSE_DELAY=-1", "sa", "");
+        Thread.currentThread().interrupt();
+        try {
+            ds.warmUp(8);
+            Assert.fail("interrupted warm up expected");
+        } catch(SQLException e) {
+            Assert.assertTrue(Thread.interrupted());
+        }
+        try(Connection conn = ds.getConnection()) {
+            int sessions = sessions(conn);
+            for(int i = 0; i < 100 && sessions > 1; i++) {
+                // abandoned tasks may still be finishing
+                Thread.sleep(20);
+                ds.close();
+                sessions = sessions(conn);
+            }
+            Assert.assertEquals(1, sessions);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.ds;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * PoolDataSource borrowing and returning.
+ * @author antons
+ */
+public class PoolDataSourceTest {
+
+    private PoolDataSource pool;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        pool = PoolDataSource.instance(DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1", "sa", ""))
+            .maxSize(1)
+            .acquireTimeout(1000);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reusesReturnedConnection() throws Exception {
+        Connection conn = pool.getConnection();
+        Assert.assertEquals(1, pool.active());
+        conn.close();
+        Assert.assertTrue(conn.isClosed());
+        Assert.assertEquals(0, pool.active());
+        Assert.assertEquals(1, pool.idle());
+        pool.getConnection().close();
+        Assert.assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void closesStatementsLeftOpen() throws Exception {
+        Connection conn = pool.getConnection();
+        PreparedStatement ps = conn.prepareStatement("select 1");
+        ResultSet rs = ps.executeQuery();
+        Assert.assertSame(conn, ps.getConnection());
+        Assert.assertSame(conn, conn.createStatement().getConnection());
+        Assert.assertSame(conn, conn.prepareCall("select 1").getConnection());
+        conn.close();
+        Assert.assertTrue(ps.isClosed());
+        Assert.assertTrue(rs.isClosed());
+        try(Connection other = pool.getConnection()) {
+            PreparedStatement closed = other.prepareStatement("select 1");
+            closed.close();
+            Assert.assertTrue(closed.isClosed());
+        }
+        Assert.assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void timeoutWhenPoolIsFull() throws Exception {
+        pool.acquireTimeout(100);
+        try(Connection conn = pool.getConnection()) {
+            pool.getConnection();
+            Assert.fail("timeout expected");
+        } catch(SQLTimeoutException e) {
+            Assert.assertEquals(0, pool.waiting());
+        }
+    }
+
+    @Test
+    public void maxWaiting() throws Exception {
+        pool.maxWaiting(1);
+        try(Connection conn = pool.getConnection()) {
+            CompletableFuture<Connection> waiter = pool.getConnectionAsync(executor);
+            Assert.assertEquals(1, pool.waiting());
+            try {
+                pool.getConnection();
+                Assert.fail("rejection expected");
+            } catch(SQLTransientConnectionException e) {
+                // expected
+            }
+            waiter.cancel(false);
+        }
+    }
+
+    @Test
+    public void asyncWaiterGetsReturnedConnection() throws Exception {
+        Connection conn = pool.getConnection();
+        CompletableFuture<Connection> waiter = pool.getConnectionAsync(executor);
+        Assert.assertFalse(waiter.isDone());
+        conn.close();
+        Connection next = waiter.get(1, TimeUnit.SECONDS);
+        Assert.assertFalse(next.isClosed());
+        next.close();
+        Assert.assertEquals(1, pool.idle());
+    }
+
+    @Test
+    public void asyncTimeout() throws Exception {
+        pool.acquireTimeout(100);
+        try(Connection conn = pool.getConnection()) {
+            pool.getConnectionAsync(executor).get(1, TimeUnit.SECONDS);
+            Assert.fail("timeout expected");
+        } catch(ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof SQLTimeoutException);
+        }
+    }
+
+    @Test
+    public void cancelledWaiterDoesNotLeakConnection() throws Exception {
+        Connection conn = pool.getConnection();
+        CompletableFuture<Connection> waiter = pool.getConnectionAsync(executor);
+        waiter.cancel(false);
+        Assert.assertEquals(0, pool.waiting());
+        conn.close();
+        pool.acquireTimeout(500).getConnection().close();
+        Assert.assertEquals(0, pool.active());
+    }
+
+    @Test
+    public void cancelledCreationDoesNotLeakConnection() throws Exception {
+        CompletableFuture<Connection> created = pool.getConnectionAsync(executor);
+        created.cancel(false);
+        pool.acquireTimeout(500).getConnection().close();
+        Assert.assertEquals(1, pool.size());
+        Assert.assertEquals(0, pool.active());
+    }
+
+    @Test
+    public void closedPoolRejectsCallers() throws Exception {
+        pool.close();
+        try {
+            pool.getConnection();
+            Assert.fail("closed pool");
+        } catch(SQLException e) {
+            // expected
+        }
+        try {
+            pool.getConnectionAsync(executor).get();
+            Assert.fail("closed pool");
+        } catch(ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * LogLimiter sampling and rate limits.
+ * @author antons
+ */
+public class LogLimiterTest {
+
+    @Test
+    public void unlimitedAdmitsAll() {
+        LogLimiter limiter = LogLimiter.instance();
+        for(int i = 0; i < 1000; i++) Assert.assertTrue(limiter.admit("select 1"));
+        Assert.assertNull(limiter.summary());
+    }
+
+    @Test
+    public void zeroSampleRateSuppressesAll() {
+        LogLimiter limiter = LogLimiter.instance().sample(0);
+        for(int i = 0; i < 10; i++) Assert.assertFalse(limiter.admit("select 1"));
+        Assert.assertEquals(10, limiter.sampled());
+        Assert.assertEquals("jdbc log suppressed: 10 (sampled: 10 rate limited: 0)", limiter.summary());
+        Assert.assertEquals(0, limiter.sampled());
+    }
+
+    @Test
+    public void globalRateLimit() {
+        LogLimiter limiter = LogLimiter.instance().rateLimit(10);
+        Assert.assertEquals(10, admitted(limiter, "select 1", 100));
+        Assert.assertEquals(90, limiter.limited());
+    }
+
+    @Test
+    public void statementRateLimitPerFingerprint() {
+        LogLimiter limiter = LogLimiter.instance().statementRateLimit(5);
+        Assert.assertEquals(5, admitted(limiter, "select a from t where id = 1", 100));
+        Assert.assertEquals(0, admitted(limiter, "select a from t where id = 2", 100));
+        Assert.assertEquals(5, admitted(limiter, "select b from t where id = 1", 100));
+    }
+
+    @Test
+    public void statementLimitDoesNotConsumeGlobalLimit() {
+        LogLimiter limiter = LogLimiter.instance().rateLimit(10).statementRateLimit(2);
+        Assert.assertEquals(2, admitted(limiter, "select a from t", 100));
+        for(String column : new String[]{"b", "c", "d", "e", "f", "g", "h", "i"}) {
+            Assert.assertTrue(limiter.admit("select " + column + " from t"));
+        }
+        Assert.assertFalse(limiter.admit("select j from t"));
+    }
+
+    @Test
+    public void globalLimitDoesNotConsumeStatementLimit() {
+        LogLimiter limiter = LogLimiter.instance().rateLimit(2).statementRateLimit(10);
+        Assert.assertEquals(2, admitted(limiter, "select a from t", 100));
+        limiter.rateLimit(0);
+        Assert.assertEquals(8, admitted(limiter, "select a from t", 100));
+    }
+
+    private static int admitted(LogLimiter limiter, String sql, int count) {
+        int admitted = 0;
+        for(int i = 0; i < count; i++) {
+            if(limiter.admit(sql)) admitted++;
+        }
+        return admitted;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import sk.antons.jdbc.ds.DriverManagerDataSource;
+import sk.antons.jdbc.ds.LogDataSource;
+
+/**
+ * Prepared statement cache of LogDataSource connections.
+ * @author antons
+ */
+public class StatementCacheTest {
+
+    private final List<String> messages = new ArrayList<>();
+    private LogDataSource ds;
+    private Connection conn;
+
+    @Before
+    public void setUp() throws Exception {
+        ds = LogDataSource.wrap(
+            DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:statementcache", "sa", "")
+            , LogConfig.instance(() -> true, messages::add).statementCache(2));
+        conn = ds.getConnection();
+        try(Statement st = conn.createStatement()) {
+            st.executeUpdate("create table t (id int)");
+            st.executeUpdate("insert into t values (1), (2)");
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        conn.close();
+    }
+
+    @Test
+    public void reusesClosedStatement() throws Exception {
+        PreparedStatement ps = conn.prepareStatement("select id from t where id = ?");
+        ps.close();
+        PreparedStatement again = conn.prepareStatement("select id from t where id = ?");
+        Assert.assertSame(ps, again);
+        Assert.assertFalse(again.isClosed());
+        Assert.assertEquals(1, ds.statementCacheStats().hits());
+    }
+
+    @Test
+    public void doubleCloseKeepsStatementUsable() throws Exception {
+        PreparedStatement ps = conn.prepareStatement("select id from t where id = ?");
+        ps.close();
+        ps.close();
+        Assert.assertTrue(ps.isClosed());
+        PreparedStatement again = conn.prepareStatement("select id from t where id = ?");
+        Assert.assertSame(ps, again);
+        again.setInt(1, 2);
+        try(ResultSet rs = again.executeQuery()) {
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals(2, rs.getInt(1));
+        }
+        again.close();
+    }
+
+    @Test
+    public void logicalCloseClosesResultSet() throws Exception {
+        PreparedStatement ps = conn.prepareStatement("select id from t");
+        ResultSet rs = ps.executeQuery();
+        ps.close();
+        Assert.assertTrue(rs.isClosed());
+    }
+
+    @Test
+    public void sameSqlOpenTwiceClosesSecond() throws Exception {
+        PreparedStatement first = conn.prepareStatement("select id from t");
+        PreparedStatement second = conn.prepareStatement("select id from t");
+        Assert.assertNotSame(first, second);
+        first.close();
+        second.close();
+        PreparedStatement again = conn.prepareStatement("select id from t");
+        Assert.assertSame(first, again);
+        try(ResultSet rs = again.executeQuery()) {
+            Assert.assertTrue(rs.next());
+        }
+    }
+
+    @Test
+    public void evictedStatementIsClosed() throws Exception {
+        PreparedStatement a = conn.prepareStatement("select 1");
+        PreparedStatement b = conn.prepareStatement("select 2");
+        PreparedStatement c = conn.prepareStatement("select 3");
+        a.close();
+        b.close();
+        c.close();
+        Assert.assertEquals(1, ds.statementCacheStats().evictions());
+        Assert.assertNotSame(a, conn.prepareStatement("select 1"));
+    }
+
+    @Test
+    public void cachedStatementGetsAdvisedFetchSize() throws Exception {
+        LogDataSource ads = LogDataSource.wrap(
+            DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:statementcache", "sa", "")
+            , LogConfig.instance(() -> true, messages::add).statementCache(2).adaptiveFetchSize(10, 1000));
+        try(Connection c = ads.getConnection()) {
+            PreparedStatement ps = c.prepareStatement("select id from t");
+            try(ResultSet rs = ps.executeQuery()) {
+                while(rs.next()) {}
+            }
+            ps.close();
+            PreparedStatement again = c.prepareStatement("select id from t");
+            Assert.assertSame(ps, again);
+            Assert.assertEquals(10, again.getFetchSize());
+            again.close();
+        }
+    }
+}
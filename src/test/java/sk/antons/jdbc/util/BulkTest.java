@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.util;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import sk.antons.jdbc.ds.DriverManagerDataSource;
+
+/**
+ * Bulk execution and multi row insert rewrite.
+ * @author antons
+ */
+public class BulkTest {
+
+    private static final String URL = "jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1";
+
+    private Connection conn;
+
+    @Before
+    public void setUp() throws Exception {
+        conn = DriverManager.getConnection(URL, "sa", "");
+        try(Statement st = conn.createStatement()) {
+            st.executeUpdate("create table person (id int primary key, name varchar(20))");
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try(Statement st = conn.createStatement()) {
+            st.executeUpdate("drop table person");
+        }
+        conn.close();
+    }
+
+    @Test
+    public void batches() throws Exception {
+        Bulk.Result result = Bulk.instance("insert into person (id, name) values (?, ?)")
+            .batchSize(10)
+            .execute(conn, rows(25));
+        Assert.assertEquals(25, result.rows());
+        Assert.assertEquals(25, result.updated());
+        Assert.assertEquals(3, result.batches());
+        assertPersons(conn, 25);
+    }
+
+    @Test
+    public void multiRowValuesWithTail() throws Exception {
+        Bulk.Result result = Bulk.instance("INSERT INTO person (id, name)\n VALUES (?, ?);")
+            .batchSize(10)
+            .multiRowValues(5)
+            .execute(conn, rows(23));
+        // two batches of two 5 row inserts and one 3 row insert
+        Assert.assertEquals(23, result.rows());
+        Assert.assertEquals(23, result.updated());
+        Assert.assertEquals(3, result.batches());
+        assertPersons(conn, 23);
+    }
+
+    @Test
+    public void multiRowValuesOfExactChunks() throws Exception {
+        Bulk.Result result = Bulk.instance("insert into person (id, name) values (?, ?)")
+            .batchSize(10)
+            .multiRowValues(5)
+            .execute(conn, rows(20));
+        Assert.assertEquals(20, result.rows());
+        Assert.assertEquals(2, result.batches());
+        assertPersons(conn, 20);
+    }
+
+    @Test
+    public void statementWhichCanNotBeRewritten() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for(int i = 0; i < 7; i++) rows.add(new Object[]{i, "name" + i});
+        Bulk.Result result = Bulk.instance("insert into person (id, name) select ?, ? from dual")
+            .batchSize(5)
+            .multiRowValues(5)
+            .execute(conn, rows.stream());
+        Assert.assertEquals(7, result.rows());
+        Assert.assertEquals(2, result.batches());
+        assertPersons(conn, 7);
+    }
+
+    @Test
+    public void commitAfter() throws Exception {
+        conn.setAutoCommit(false);
+        Bulk.Result result = Bulk.instance("insert into person (id, name) values (?, ?)")
+            .batchSize(4)
+            .commitAfter(2)
+            .multiRowValues(2)
+            .execute(conn, rows(11));
+        // 4 + 4 + 2 rows in batches of two row inserts and last row alone
+        Assert.assertEquals(4, result.batches());
+        try(Connection other = DriverManager.getConnection(URL, "sa", "")) {
+            assertPersons(other, 11);
+        }
+        conn.setAutoCommit(true);
+    }
+
+    @Test
+    public void failedBatchIsReported() throws Exception {
+        List<Object[]> rows = rows(12);
+        rows.get(7)[0] = 1;
+        try {
+            Bulk.instance("insert into person (id, name) values (?, ?)")
+                .batchSize(5)
+                .execute(conn, rows);
+            Assert.fail("duplicate key expected");
+        } catch(SQLException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("failed in batch: 2"));
+            Assert.assertTrue(e instanceof BatchUpdateException);
+            Assert.assertEquals("23505", e.getSQLState());
+            Assert.assertEquals(23505, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void dbBulk() throws Exception {
+        try(Db db = Db.instance(DriverManagerDataSource.instance("org.h2.Driver", URL, "sa", ""))) {
+            Bulk.Result result = db.bulk("insert into person (id, name) values (?, ?)", rows(7));
+            Assert.assertEquals(7, result.rows());
+            assertPersons(db.conn(), 7);
+        }
+    }
+
+    private static List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for(int i = 0; i < count; i++) rows.add(new Object[]{i, "name" + i});
+        return rows;
+    }
+
+    private static void assertPersons(Connection conn, int count) throws SQLException {
+        try(Statement st = conn.createStatement();
+            ResultSet rs = st.executeQuery("select count(*), count(distinct name), min(id), max(id) from person")) {
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals(count, rs.getInt(1));
+            Assert.assertEquals(count, rs.getInt(2));
+            Assert.assertEquals(0, rs.getInt(3));
+            Assert.assertEquals(count - 1, rs.getInt(4));
+        }
+    }
+}
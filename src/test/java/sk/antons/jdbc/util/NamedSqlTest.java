@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import sk.antons.jdbc.ds.DriverManagerDataSource;
+
+/**
+ * NamedSql parsing and binding.
+ * @author antons
+ */
+public class NamedSqlTest {
+
+    private static DataSource ds;
+    private static Connection keep;
+
+    public static class Named {
+        private String name;
+        public Named(String name) { this.name = name; }
+        public String getName() { return name; }
+    }
+
+    public static class Person extends Named {
+        private final int id;
+        private final boolean active;
+        long weight = 70;
+        public Person(int id, String name, boolean active) {
+            super(name);
+            this.id = id;
+            this.active = active;
+        }
+        public int id() { return id; }
+        public boolean isActive() { return active; }
+    }
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        ds = DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:namedsql", "sa", "");
+        keep = ds.getConnection();
+        try(Statement st = keep.createStatement()) {
+            st.executeUpdate("create table person (id int, name varchar(20), active boolean, weight bigint)");
+            keep.commit();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        keep.close();
+    }
+
+    @Test
+    public void parse() {
+        NamedSql sql = NamedSql.of("select * from t where a = :a and b = :b_1 or c = :a");
+        Assert.assertEquals("select * from t where a = ? and b = ? or c = ?", sql.sql());
+        Assert.assertEquals(Arrays.asList("a", "b_1", "a"), sql.names());
+        Assert.assertSame(sql, NamedSql.of("select * from t where a = :a and b = :b_1 or c = :a"));
+    }
+
+    @Test
+    public void parseIgnoresLiteralsCommentsAndCasts() {
+        NamedSql sql = NamedSql.of("select ':x', \"c:y\", a::int -- :z\n"
+            + "from t /* :w */ where a = :a and b = 'it''s :v'");
+        Assert.assertEquals("select ':x', \"c:y\", a::int -- :z\n"
+            + "from t /* :w */ where a = ? and b = 'it''s :v'", sql.sql());
+        Assert.assertEquals(Arrays.asList("a"), sql.names());
+        Assert.assertEquals("select 1 from t where x = ':", NamedSql.of("select 1 from t where x = ':").sql());
+        Assert.assertEquals("select a :1", NamedSql.of("select a :1").sql());
+    }
+
+    @Test
+    public void bindMap() throws Exception {
+        NamedSql sql = NamedSql.of("select :a, :b, :a");
+        Map<String, Object> params = new HashMap<>();
+        params.put("a", 1);
+        params.put("b", null);
+        try(Connection conn = ds.getConnection(); PreparedStatement ps = conn.prepareStatement(sql.sql())) {
+            sql.bind(ps, params);
+            try(ResultSet rs = ps.executeQuery()) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(1, rs.getInt(1));
+                Assert.assertNull(rs.getObject(2));
+                Assert.assertEquals(1, rs.getInt(3));
+            }
+            params.remove("b");
+            try {
+                sql.bind(ps, params);
+                Assert.fail("missing parameter expected");
+            } catch(SQLException e) {
+                Assert.assertEquals("Missing parameter :b for select :a, :b, :a", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void bindBean() throws Exception {
+        try(Db db = Db.instance(ds)) {
+            db.prepareNamedStatement("insert into person (id, name, active, weight) values (:id, :name, :active, :weight)");
+            db.bind(new Person(1, "anna", true));
+            db.executeUpdate();
+            db.bind(new Person(2, null, false));
+            db.executeUpdate();
+            db.conn().commit();
+
+            db.prepareNamedStatement("select name, active, weight from person where id = :id");
+            Map<String, Object> params = new HashMap<>();
+            params.put("id", 1);
+            db.bind((Object)params);
+            db.executeQuery();
+            Assert.assertTrue(db.rs().next());
+            Assert.assertEquals("anna", db.rs().getString(1));
+            Assert.assertTrue(db.rs().getBoolean(2));
+            Assert.assertEquals(70, db.rs().getLong(3));
+
+            db.bind(new Person(2, "ignored", true));
+            db.executeQuery();
+            Assert.assertTrue(db.rs().next());
+            Assert.assertNull(db.rs().getString(1));
+            Assert.assertFalse(db.rs().getBoolean(2));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingProperty() throws Exception {
+        NamedSql sql = NamedSql.of("select :unknown");
+        try(Connection conn = ds.getConnection(); PreparedStatement ps = conn.prepareStatement(sql.sql())) {
+            sql.bind(ps, new Person(1, "anna", true));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 Anton Straka
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sk.antons.jdbc.util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import sk.antons.jdbc.ds.DriverManagerDataSource;
+
+/**
+ * ResultMapper mapping of beans.
+ * @author antons
+ */
+public class ResultMapperTest {
+
+    private static DataSource ds;
+    private static Connection keep;
+
+    public static class Person {
+        private int id;
+        private String firstName;
+        private Integer age;
+        public double weight;
+        boolean active;
+
+        public void setFirstName(String firstName) { this.firstName = "set:" + firstName; }
+    }
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        ds = DriverManagerDataSource.instance("org.h2.Driver", "jdbc:h2:mem:resultmapper", "sa", "");
+        keep = ds.getConnection();
+        try(Statement st = keep.createStatement()) {
+            st.executeUpdate("create table person (id int, first_name varchar(20), age int, weight double, active boolean)");
+            st.executeUpdate("insert into person values (1, 'anna', 30, 60.5, true), (2, 'bob', null, 80, false)");
+            keep.commit();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        keep.close();
+    }
+
+    @Test
+    public void mapsColumnsByLabel() throws Exception {
+        try(Db db = Db.instance(ds); 
+            Stream<Person> persons = db.stream("select * from person order by id", ResultMapper.of(Person.class))) {
+            List<Person> list = persons.collect(Collectors.toList());
+            Assert.assertEquals(2, list.size());
+            Person anna = list.get(0);
+            Assert.assertEquals(1, anna.id);
+            Assert.assertEquals("set:anna", anna.firstName);
+            Assert.assertEquals(Integer.valueOf(30), anna.age);
+            Assert.assertEquals(60.5, anna.weight, 0);
+            Assert.assertTrue(anna.active);
+            Assert.assertNull(list.get(1).age);
+        }
+    }
+
+    @Test
+    public void missingColumnsKeepDefaults() throws Exception {
+        try(Db db = Db.instance(ds)) {
+            db.executeQuery("select id as ID, 'x' as other_column from person where id = 2");
+            Assert.assertTrue(db.rs().next());
+            Person bob = ResultMapper.of(Person.class).map(db.rs());
+            Assert.assertEquals(2, bob.id);
+            Assert.assertNull(bob.firstName);
+            Assert.assertEquals(0, bob.weight, 0);
+        }
+    }
+
+    @Test
+    public void differentShapesInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> ids = executor.submit(mapInLoop("select id from person"));
+            Future<Boolean> names = executor.submit(mapInLoop("select first_name from person"));
+            Assert.assertTrue(ids.get());
+            Assert.assertTrue(names.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Callable<Boolean> mapInLoop(String sql) {
+        return () -> {
+            ResultMapper<Person> mapper = ResultMapper.of(Person.class);
+            try(Connection conn = ds.getConnection(); Statement st = conn.createStatement()) {
+                for(int i = 0; i < 200; i++) {
+                    try(ResultSet rs = st.executeQuery(sql)) {
+                        while(rs.next()) {
+                            Person person = mapper.map(rs);
+                            if(sql.contains("id") ? (person.id == 0) : (person.firstName == null)) return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        };
+    }
+
+    @Test
+    public void rowMapperBoundToResultSet() throws Exception {
+        try(Connection conn = ds.getConnection(); 
+            Statement st = conn.createStatement(); 
+            ResultSet rs = st.executeQuery("select id, age from person order by id")) {
+            RowMapper<Person> mapper = ResultMapper.of(Person.class).rowMapper(rs);
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals(30, (int)mapper.map(rs).age);
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals(2, mapper.map(rs).id);
+        }
+    }
+}